@@ -0,0 +1,72 @@
+package com.example.family;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+// Liderin kabul ettiği iş miktarını sınırlar: aynı anda en fazla capacity komut kabul edilmiş
+// (kuyrukta bekleyen ya da çalışan) olabilir. Kapasite doluyken yeni batch ya reddedilir (BUSY)
+// ya da çağıran yer açılana kadar bekletilir (BLOCK; yalnızca bağlantı başına thread'li modlarda).
+// Kuyruk derinliği, bekleme süresi ve reddedilen komut sayısı aile çıktısında görünür.
+public class AdmissionControl {
+
+    private final int capacity;
+    private final boolean blockWhenFull;
+    private final Semaphore permits;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    public AdmissionControl(int capacity, boolean blockWhenFull) {
+        this.capacity = capacity;
+        this.blockWhenFull = blockWhenFull;
+        this.permits = new Semaphore(capacity);
+    }
+
+    // commands kadar yer ayırır ve ayrılan izin sayısını döner; yer yoksa 0 (BUSY).
+    // Kapasiteden büyük batch'ler tüm kapasiteyi alır, böylece hiçbir batch sonsuza dek beklemez.
+    public int admit(int commands, boolean mayBlock) {
+        int needed = Math.min(commands, capacity);
+        if (permits.tryAcquire(needed)) {
+            admitted.addAndGet(commands);
+            return needed;
+        }
+        if (!blockWhenFull || !mayBlock) {
+            rejected.addAndGet(commands);
+            return 0;
+        }
+
+        try {
+            permits.acquire(needed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.addAndGet(commands);
+            return 0;
+        }
+        admitted.addAndGet(commands);
+        return needed;
+    }
+
+    public void release(int granted) {
+        if (granted > 0) permits.release(granted);
+    }
+
+    // Komutun kabulünden worker'da çalışmaya başlamasına kadar geçen süre.
+    public void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulate(nanos);
+    }
+
+    public int depth() {
+        return capacity - permits.availablePermits();
+    }
+
+    public String stats() {
+        long count = admitted.get();
+        double avgMs = count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+        return String.format("depth %d/%d, avg wait %.2f ms, max wait %.2f ms, admitted %d, busy %d",
+                depth(), capacity, avgMs, maxWaitNanos.get() / 1e6, count, rejected.get());
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.family;
+
+import family.MerkleDigests;
+import family.MerkleEntries;
+import family.MerkleQuery;
+import family.NodeInfo;
+import family.StoredMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lider, konum haritasına göre her üyede hangi (id, checksum) çiftlerinin olması gerektiğini üye başına
+// bir Merkle ağacında tutar; üyeler de diskte gerçekten olanların ağacını tutar. Periyodik turda kökten
+// başlanıp seviye seviye yalnızca özeti farklı çıkan düğümlerin çocukları sorulur (seviye başına tek RPC);
+// böylece uyumlu bir üye için tek bir özet, k farklı ID için ~k * depth özet taşınır. Farklı yapraklardaki
+// girdiler karşılaştırılır; eksik ya da bozuk ID'ler liderin kendi kopyasından yeniden gönderilir.
+public class AntiEntropy {
+
+    // Yaprak girdileri parça parça sorulur; tek cevap gRPC'nin 4 MiB mesaj sınırını ve deadline'ı aşmasın
+    private static final int MAX_LEAVES_PER_CALL = 256;
+    private static final int MAX_ENTRIES_PER_CALL = 16_384;
+
+    // Liderin yerel kopyası; yoksa null.
+    public interface Copies {
+        String readLocal(int id);
+    }
+
+    private final NodeRegistry registry;
+    private final LocationIndex index;
+    private final NodeInfo self;
+    private final Copies copies;
+    private final int depth;
+    private final long intervalMs;
+    private final long deadlineMs;
+    private final CompletableFuture<?> recovered;
+    private final ConcurrentHashMap<NodeInfo, MerkleTree> expected = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    private final AtomicLong rounds = new AtomicLong();
+    private final AtomicLong digestsExchanged = new AtomicLong();
+    private final AtomicLong divergent = new AtomicLong();
+    private final AtomicLong repaired = new AtomicLong();
+    private final AtomicLong extra = new AtomicLong(); // son turdaki fazla kopya sayısı
+
+    public AntiEntropy(NodeRegistry registry, LocationIndex index, NodeInfo self, Copies copies, int depth,
+                       long intervalMs, long deadlineMs, CompletableFuture<?> recovered) {
+        this.registry = registry;
+        this.index = index;
+        this.self = self;
+        this.copies = copies;
+        this.depth = depth;
+        this.intervalMs = intervalMs;
+        this.deadlineMs = deadlineMs;
+        this.recovered = recovered;
+    }
+
+    public void start() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread t = new Thread(task, "AntiEntropy");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(this::buildExpected);
+        scheduler.scheduleWithFixedDelay(this::round, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Üyenin bu ID için bu checksum'ı tutması beklenir.
+    public void expect(NodeInfo member, int id, int checksum) {
+        expected.computeIfAbsent(member, m -> new MerkleTree(depth)).put(id, checksum);
+        // Çıkarılma ile yarışan bir yazım ağacı yeniden yaratmış olabilir
+        if (!registry.contains(member)) expected.remove(member);
+    }
+
+    // Çıkarılan üyenin ağacı bırakılır; aynı portla geri dönen üye boş bir ağaçla başlar.
+    public void memberRemoved(NodeInfo member) {
+        expected.remove(member);
+    }
+
+    // Üyenin artık bu ID'yi tutması beklenmez (konumu değişti).
+    public void forget(NodeInfo member, int id) {
+        MerkleTree tree = expected.get(member);
+        if (tree != null) tree.remove(id);
+    }
+
+    // Açılışta beklenen ağaçlar konum haritası ve liderin yerel kopyalarından kurulur. Kurulum sürerken
+    // gelen yazımlar expect ile zaten işlenir; çakışan bir okuma en kötü ihtimalle bir sonraki turda
+    // gereksiz bir yeniden gönderime yol açar.
+    private void buildExpected() {
+        recovered.join();
+        long started = System.nanoTime();
+        long count = 0;
+        for (int segment = 0; segment < index.segmentCount(); segment++) {
+            // Segment kilidi altında disk okunmaz: önce girdiler toplanır
+            List<long[]> batch = new ArrayList<>();
+            index.forEach(segment, (id, packed) -> batch.add(new long[] {id, packed}));
+
+            for (long[] entry : batch) {
+                int id = (int) entry[0];
+                String content = copies.readLocal(id);
+                if (content == null) continue; // liderde kopya yok, beklenti kurulamaz
+                int checksum = MerkleTree.checksum(content);
+                int holders = index.holderCount(id, entry[1]);
+                for (int i = 0; i < holders; i++) {
+                    NodeInfo holder = registry.nodeAt(index.holderSlot(id, entry[1], i));
+                    if (holder.getPort() != self.getPort()) expect(holder, id, checksum);
+                }
+                count++;
+            }
+        }
+        ready = true;
+        System.out.printf("Anti-entropy: beklenen ağaçlar kuruldu, %d mesaj, %.1f ms%n",
+                count, (System.nanoTime() - started) / 1e6);
+    }
+
+    private void round() {
+        if (!ready) return;
+        rounds.incrementAndGet();
+        extra.set(0);
+        for (NodeInfo member : registry.snapshot()) {
+            if (member.getPort() == self.getPort()) continue;
+            try {
+                compare(member);
+            } catch (RuntimeException e) {
+                System.err.printf("Anti-entropy: %d düğümü ile karşılaştırılamadı: %s%n", member.getPort(), e.getMessage());
+            }
+        }
+    }
+
+    private void compare(NodeInfo member) {
+        if (!registry.contains(member)) return;
+        MerkleTree tree = expected.computeIfAbsent(member, m -> new MerkleTree(depth));
+
+        // Kökten yapraklara, yalnızca özeti farklı düğümlerin çocuklarını sorarak in
+        List<Integer> frontier = List.of(1);
+        List<Integer> leaves = new ArrayList<>();
+        while (!frontier.isEmpty()) {
+            MerkleDigests digests = registry.channels().blockingStub(member)
+                    .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                    .merkleDigest(MerkleQuery.newBuilder().addAllNodes(frontier).build());
+            if (!digests.getReady() || digests.getDepth() != depth) return; // üye ağacını henüz kurmadı
+            digestsExchanged.addAndGet(frontier.size());
+
+            List<Integer> next = new ArrayList<>();
+            for (int i = 0; i < frontier.size(); i++) {
+                int node = frontier.get(i);
+                if (digests.getDigests(i) == tree.digest(node)) continue;
+                if (tree.isLeaf(node)) {
+                    leaves.add(node);
+                } else {
+                    next.add(2 * node);
+                    next.add(2 * node + 1);
+                }
+            }
+            frontier = next;
+        }
+        if (leaves.isEmpty()) return;
+
+        int missing = 0;
+        int unexpected = 0;
+        int next = 0;
+        while (next < leaves.size()) {
+            // Parça, liderin beklediği girdi sayısına göre sınırlanır (en az bir yaprak)
+            List<Integer> chunk = new ArrayList<>();
+            List<int[][]> expectedEntries = new ArrayList<>();
+            int entryCount = 0;
+            while (next < leaves.size() && chunk.size() < MAX_LEAVES_PER_CALL && entryCount < MAX_ENTRIES_PER_CALL) {
+                int leaf = leaves.get(next++);
+                int[][] entries = tree.entries(leaf);
+                chunk.add(leaf);
+                expectedEntries.add(entries);
+                entryCount += entries[0].length;
+            }
+
+            MerkleEntries actual = registry.channels().blockingStub(member)
+                    .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                    .merkleLeaves(MerkleQuery.newBuilder().addAllNodes(chunk).build());
+            Map<Integer, Integer> stored = new HashMap<>(actual.getIdsCount() * 2);
+            for (int i = 0; i < actual.getIdsCount(); i++) {
+                stored.put(actual.getIds(i), actual.getChecksums(i));
+            }
+
+            for (int[][] entries : expectedEntries) {
+                for (int i = 0; i < entries[0].length; i++) {
+                    int id = entries[0][i];
+                    Integer checksum = stored.remove(id);
+                    if (checksum != null && checksum == entries[1][i]) continue;
+
+                    missing++;
+                    resend(member, id);
+                }
+            }
+            unexpected += stored.size();
+        }
+        divergent.addAndGet(missing);
+        extra.addAndGet(unexpected); // beklenmeyen (ör. konumu değişmiş eski) kopyalar silinmez, yalnızca sayılır
+        System.out.printf("Anti-entropy: %d düğümünde %d yaprak farklı, %d mesaj eksik/bozuk, %d fazla.%n",
+                member.getPort(), leaves.size(), missing, unexpected);
+    }
+
+    private void resend(NodeInfo member, int id) {
+        String content = copies.readLocal(id);
+        if (content == null) return;
+        try {
+            boolean ok = registry.channels().blockingStub(member)
+                    .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                    .store(StoredMessage.newBuilder().setId(id).setText(content).build())
+                    .getSuccess();
+            if (ok) repaired.incrementAndGet();
+        } catch (RuntimeException e) {
+            System.err.printf("Anti-entropy: %d mesajı %d düğümüne gönderilemedi: %s%n", id, member.getPort(), e.getMessage());
+        }
+    }
+
+    public String stats() {
+        return String.format("%s, rounds %d, digests %d, divergent %d, repaired %d, extra %d",
+                ready ? "ready" : "building", rounds.get(), digestsExchanged.get(), divergent.get(),
+                repaired.get(), extra.get());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.family;
+
+import family.FamilyServiceGrpc;
+import family.NodeInfo;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+// Her üye için tek, uzun ömürlü bir gRPC kanalı tutar.
+// Kanal NodeRegistry.add ile açılır, NodeRegistry.remove ile kapatılır;
+// böylece her SET/GET için yeniden TCP + HTTP/2 el sıkışması yapılmaz.
+// Aileye kayıtlı olmayan bir üye için kanal açılmaz: çıkarılmış bir üyeye giden çağrılar kapalı bir
+// kanal üzerinden hemen UNAVAILABLE ile düşer, havuzda bir daha kapatılmayacak kanal kalmaz.
+// Henüz katılmamış adaylar (keşif, yeniden katılma) için candidate* kullanılır; başarısızlıkta çağıran evict eder.
+public class ChannelPool {
+
+    private final ConcurrentHashMap<NodeInfo, ManagedChannel> channels = new ConcurrentHashMap<>();
+    private final Predicate<NodeInfo> registered;
+    private final ManagedChannel refused;
+
+    public ChannelPool(Predicate<NodeInfo> registered) {
+        this.registered = registered;
+        this.refused = ManagedChannelBuilder.forTarget("refused.invalid").usePlaintext().build();
+        this.refused.shutdownNow();
+    }
+
+    public ManagedChannel channel(NodeInfo node) {
+        if (!registered.test(node)) return refused;
+        ManagedChannel channel = open(node);
+        // Kontrolle açma arasında üye çıkarıldıysa evict çoktan çalışmış olabilir; kanal burada kapatılır
+        if (!registered.test(node)) {
+            evict(node);
+            return refused;
+        }
+        return channel;
+    }
+
+    public FamilyServiceGrpc.FamilyServiceBlockingStub blockingStub(NodeInfo node) {
+        return FamilyServiceGrpc.newBlockingStub(channel(node));
+    }
+
+    public FamilyServiceGrpc.FamilyServiceFutureStub futureStub(NodeInfo node) {
+        return FamilyServiceGrpc.newFutureStub(channel(node));
+    }
+
+    public FamilyServiceGrpc.FamilyServiceStub asyncStub(NodeInfo node) {
+        return FamilyServiceGrpc.newStub(channel(node));
+    }
+
+    public FamilyServiceGrpc.FamilyServiceBlockingStub candidateBlockingStub(NodeInfo node) {
+        return FamilyServiceGrpc.newBlockingStub(open(node));
+    }
+
+    public FamilyServiceGrpc.FamilyServiceFutureStub candidateFutureStub(NodeInfo node) {
+        return FamilyServiceGrpc.newFutureStub(open(node));
+    }
+
+    private ManagedChannel open(NodeInfo node) {
+        return channels.computeIfAbsent(node, n -> ManagedChannelBuilder
+                .forAddress(n.getHost(), n.getPort())
+                .usePlaintext()
+                .build());
+    }
+
+    public void evict(NodeInfo node) {
+        ManagedChannel channel = channels.remove(node);
+        if (channel != null) {
+            channel.shutdown();
+        }
+    }
+
+    // Kanal yoksa null döner; bağlantı kurmaya zorlamaz.
+    public ConnectivityState state(NodeInfo node) {
+        ManagedChannel channel = channels.get(node);
+        return channel == null ? null : channel.getState(false);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.family;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+// Bir bağlantıdan art arda gelen (pipeline edilmiş) komutları toplu işler.
+// Farklı ID'lere ait komutlar paralel çalışır, aynı ID'ye ait komutlar geliş sırasıyla
+// zincirlenir. Cevaplar her zaman komutların geliş sırasıyla döner.
+// AdmissionControl verilirse kapasite doluyken batch'in tüm komutlarına BUSY döner.
+public class CommandPipeline {
+
+    public static final int MAX_BATCH = 256;
+    public static final String BUSY = "BUSY";
+
+    private final Function<String, Reply> handler;
+    private final ExecutorService executor;
+    private final AdmissionControl admission;
+
+    public CommandPipeline(Function<String, Reply> handler, ExecutorService executor) {
+        this(handler, executor, null);
+    }
+
+    public CommandPipeline(Function<String, Reply> handler, ExecutorService executor, AdmissionControl admission) {
+        this.handler = handler;
+        this.executor = executor;
+        this.admission = admission;
+    }
+
+    public AdmissionControl admission() {
+        return admission;
+    }
+
+    // Dönen listede cevabı olmayan komutlar için null bulunur.
+    // Selector thread'i gibi bloklanmaması gereken çağıranlar içindir; kapasite doluysa BUSY döner.
+    public CompletableFuture<List<Reply>> submit(List<String> lines) {
+        return submit(lines, false);
+    }
+
+    // mayBlock: çağıran (bağlantı başına thread) BLOCK politikasında yer açılana kadar bekleyebilir.
+    public CompletableFuture<List<Reply>> submit(List<String> lines, boolean mayBlock) {
+        if (admission == null) {
+            return dispatch(lines, 0L);
+        }
+
+        int granted = admission.admit(lines.size(), mayBlock);
+        if (granted == 0) {
+            List<Reply> busy = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                busy.add(line.trim().isEmpty() ? null : Reply.text(BUSY));
+            }
+            return CompletableFuture.completedFuture(busy);
+        }
+
+        CompletableFuture<List<Reply>> replies = dispatch(lines, System.nanoTime());
+        replies.whenComplete((ignored, error) -> admission.release(granted));
+        return replies;
+    }
+
+    private CompletableFuture<List<Reply>> dispatch(List<String> lines, long admittedAt) {
+        Map<String, CompletableFuture<Reply>> lastByKey = new HashMap<>();
+        List<CompletableFuture<Reply>> results = new ArrayList<>(lines.size());
+
+        for (String line : lines) {
+            List<String> keys = keysOf(line);
+            List<CompletableFuture<Reply>> previous = new ArrayList<>();
+            for (String key : keys) {
+                CompletableFuture<Reply> last = lastByKey.get(key);
+                if (last != null && !previous.contains(last)) previous.add(last);
+            }
+
+            CompletableFuture<Reply> result;
+            if (previous.isEmpty()) {
+                result = CompletableFuture.supplyAsync(() -> apply(line, admittedAt), executor);
+            } else if (previous.size() == 1) {
+                result = previous.get(0).handleAsync((ignored, error) -> apply(line, admittedAt), executor);
+            } else {
+                result = CompletableFuture.allOf(previous.toArray(new CompletableFuture<?>[0]))
+                        .handleAsync((ignored, error) -> apply(line, admittedAt), executor);
+            }
+
+            for (String key : keys) {
+                lastByKey.put(key, result);
+            }
+            results.add(result);
+        }
+
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    List<Reply> responses = new ArrayList<>(results.size());
+                    for (CompletableFuture<Reply> r : results) {
+                        responses.add(r.join());
+                    }
+                    return responses;
+                });
+    }
+
+    private Reply apply(String line, long admittedAt) {
+        if (admittedAt != 0L) {
+            admission.recordWait(System.nanoTime() - admittedAt);
+        }
+        try {
+            return handler.apply(line);
+        } catch (Exception e) {
+            return Reply.text("ERROR " + e.getMessage());
+        }
+    }
+
+    // "SET 12 ..." / "GET 12" -> [12], "MGET 1 2" -> [1, 2], "MSET 1 a | 2 b" -> [1, 2].
+    // Anahtarı olmayan satırlar bağımsız sayılır.
+    static List<String> keysOf(String line) {
+        String[] parts = line.trim().split("\\s+", 2);
+        if (parts.length < 2) return List.of();
+
+        String cmd = parts[0].toUpperCase();
+        if ("MGET".equals(cmd)) {
+            return List.of(parts[1].split("\\s+"));
+        }
+        if ("MSET".equals(cmd)) {
+            List<String> keys = new ArrayList<>();
+            for (String entry : parts[1].split("\\|")) {
+                String id = entry.trim().split("\\s+", 2)[0];
+                if (!id.isEmpty()) keys.add(id);
+            }
+            return keys;
+        }
+        return List.of(parts[1].split("\\s+", 2)[0]);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.family;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
+import com.google.protobuf.UnsafeByteOperations;
 import family.*;
 import io.grpc.stub.StreamObserver;
 import java.io.FileNotFoundException;
@@ -10,14 +12,69 @@ public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
     private final NodeRegistry registry;
 
     private final MessageHandler messageHandler;
-    private final int saveMode;
+    private final ReadCache cache; // null ise önbellek kapalı
+    private final MerkleTree stored; // null ise anti-entropy kapalı (lider)
+    private volatile boolean storedReady;
+
+    // Lider ile aynı disk yöneticisini paylaşır; segment log modunda aynı dosyalara
+    // iki ayrı yazıcı açılmaması için şart.
+    public FamilyServiceImpl(NodeRegistry registry, NodeInfo self, MessageHandler messageHandler) {
+        this(registry, self, messageHandler, null);
+    }
+
+    public FamilyServiceImpl(NodeRegistry registry, NodeInfo self, MessageHandler messageHandler, ReadCache cache) {
+        this(registry, self, messageHandler, cache, null);
+    }
 
-    public FamilyServiceImpl(NodeRegistry registry, NodeInfo self, int saveMode) {
+    public FamilyServiceImpl(NodeRegistry registry, NodeInfo self, MessageHandler messageHandler, ReadCache cache,
+                             MerkleTree stored) {
         this.registry = registry;
-        this.saveMode = saveMode;
         this.registry.add(self);
 
-        this.messageHandler = new MessageHandler(self.getPort(), saveMode);
+        this.messageHandler = messageHandler;
+        this.cache = cache;
+        this.stored = stored;
+    }
+
+    private void saveAndCache(int id, String text) throws java.io.IOException {
+        if (cache != null) cache.invalidate(id);
+        messageHandler.saveMessage(id, text);
+        if (cache != null) cache.put(id, text);
+        if (stored != null) stored.put(id, MerkleTree.checksum(text));
+    }
+
+    // Açılışta diskteki mesajları okuyup Merkle ağacını kurar. Checksum'lar diskteki gerçek
+    // baytlardan hesaplanır; yarım kalmış yazımlar ve kayıp dosyalar böylece liderin beklediğinden ayrışır.
+    public void indexStoredMessages() {
+        if (stored == null) return;
+        long started = System.nanoTime();
+        int[] count = new int[1];
+        try {
+            messageHandler.forEachStoredId(id -> {
+                try {
+                    stored.put(id, MerkleTree.checksum(messageHandler.readMessageBytes(id)));
+                    count[0]++;
+                } catch (java.io.IOException e) {
+                    System.err.println("Merkle: " + id + " okunamadı: " + e.getMessage());
+                }
+            });
+        } catch (java.io.IOException e) {
+            System.err.println("Merkle ağacı kurulamadı: " + e.getMessage());
+            return;
+        }
+        storedReady = true;
+        System.out.printf("Merkle ağacı kuruldu: %d mesaj, %.1f ms%n", count[0], (System.nanoTime() - started) / 1e6);
+    }
+
+    // Önce önbellek, yoksa disk; diskten okunan baytlar önbelleğe de konur.
+    private ByteString readBytes(int id) throws java.io.IOException {
+        if (cache != null) {
+            byte[] cached = cache.getBytes(id);
+            if (cached != null) return UnsafeByteOperations.unsafeWrap(cached);
+        }
+        java.nio.ByteBuffer bytes = messageHandler.readMessageBytes(id);
+        if (cache != null) cache.fillBytes(id, bytes);
+        return UnsafeByteOperations.unsafeWrap(bytes);
     }
 
     @Override
@@ -49,7 +106,7 @@ public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
 
         try {
             // Liderden gelen "Kaydet" emrini disk yöneticisine iletiyoruz
-            messageHandler.saveMessage(request.getId(), request.getText());
+            saveAndCache(request.getId(), request.getText());
         } catch (Exception e) {
             success = false;
             msg = e.getMessage();
@@ -67,25 +124,130 @@ public class FamilyServiceImpl extends FamilyServiceGrpc.FamilyServiceImplBase {
     public void retrieve(MessageId request, StreamObserver<StoredMessage> responseObserver) {
         System.out.println("🔎 Disk read request for ID: " + request.getId());
 
-        String content = "";
+        StoredMessage.Builder response = StoredMessage.newBuilder().setId(request.getId());
         try {
-            // Liderden gelen "Oku" emrini disk yöneticisine iletiyoruz
-            content = messageHandler.readMessage(request.getId());
+            // Liderden gelen "Oku" emrini disk yöneticisine iletiyoruz.
+            // Baytlar String'e çevrilmeden (MMAP modunda kopyalanmadan) cevaba konur.
+            response.setTextBytes(readBytes(request.getId()));
         } catch (FileNotFoundException e) {
             System.err.println("Message not found: " + request.getId());
-            content = "ERROR: NOT_FOUND"; // Veya boş dönebilirsin
+            response.setText("ERROR: NOT_FOUND"); // Veya boş dönebilirsin
         } catch (Exception e) {
             System.err.println("Disk read error: " + e.getMessage());
-            content = "ERROR: IO_EXCEPTION";
+            response.setText("ERROR: IO_EXCEPTION");
         }
 
         // Bulunan içeriği lidere geri gönderiyoruz
-        StoredMessage response = StoredMessage.newBuilder()
-                .setId(request.getId())
-                .setText(content)
-                .build();
 
-        responseObserver.onNext(response);
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void storeBatch(StoredMessageBatch request, StreamObserver<StoreResult> responseObserver) {
+        int stored = 0;
+        String msg = "Başarıyla kaydedildi.";
+        StoreResult.Builder result = StoreResult.newBuilder();
+
+        // Tek RPC içinde gelen tüm mesajları sırayla diske yazıyoruz; kaydedilemeyenler ID'leriyle
+        // bildirilir ki lider yalnızca onları başarısız saysın
+        for (StoredMessage m : request.getMessagesList()) {
+            try {
+                saveAndCache(m.getId(), m.getText());
+                stored++;
+            } catch (Exception e) {
+                msg = e.getMessage();
+                result.addFailedIds(m.getId());
+                System.err.println("Kaydedilirken bir hata oluştu: : " + e.getMessage());
+            }
+        }
+
+        responseObserver.onNext(result
+                .setSuccess(stored == request.getMessagesCount())
+                .setMessage(stored == request.getMessagesCount() ? msg : stored + "/" + request.getMessagesCount() + " kaydedildi: " + msg)
+                .build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<StoredMessage> storeStream(StreamObserver<StoreSummary> responseObserver) {
+        // Lider aynı üyeye birden fazla bekleyen yazma olduğunda bu stream'i kullanır.
+        // onNext diske yazmadan dönmediği için gelen akış da disk hızıyla sınırlanır.
+        return new StreamObserver<StoredMessage>() {
+            private int stored;
+            private final StoreSummary.Builder summary = StoreSummary.newBuilder();
+
+            @Override
+            public void onNext(StoredMessage m) {
+                try {
+                    saveAndCache(m.getId(), m.getText());
+                    stored++;
+                } catch (Exception e) {
+                    summary.addFailedIds(m.getId());
+                    System.err.println("Kaydedilirken bir hata oluştu: : " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                System.err.println("StoreStream iptal edildi: " + t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onNext(summary.setStored(stored).build());
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    @Override
+    public void merkleDigest(MerkleQuery request, StreamObserver<MerkleDigests> responseObserver) {
+        MerkleDigests.Builder response = MerkleDigests.newBuilder().setReady(stored != null && storedReady);
+        if (response.getReady()) {
+            response.setDepth(stored.depth());
+            for (int node : request.getNodesList()) {
+                response.addDigests(stored.digest(node));
+            }
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void merkleLeaves(MerkleQuery request, StreamObserver<MerkleEntries> responseObserver) {
+        MerkleEntries.Builder response = MerkleEntries.newBuilder();
+        if (stored != null && storedReady) {
+            for (int leaf : request.getNodesList()) {
+                int[][] entries = stored.entries(leaf);
+                for (int i = 0; i < entries[0].length; i++) {
+                    response.addIds(entries[0][i]).addChecksums(entries[1][i]);
+                }
+            }
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void retrieveBatch(MessageIdBatch request, StreamObserver<StoredMessageBatch> responseObserver) {
+        StoredMessageBatch.Builder response = StoredMessageBatch.newBuilder();
+
+        // Bulunamayan ID'ler cevaba eklenmez, lider bunları başka üyeden ister
+        for (int id : request.getIdsList()) {
+            try {
+                response.addMessages(StoredMessage.newBuilder()
+                        .setId(id)
+                        .setTextBytes(readBytes(id))
+                        .build());
+            } catch (FileNotFoundException e) {
+                System.err.println("Message not found: " + id);
+            } catch (Exception e) {
+                System.err.println("Disk read error: " + e.getMessage());
+            }
+        }
+
+        responseObserver.onNext(response.build());
         responseObserver.onCompleted();
     }
 }
@@ -0,0 +1,40 @@
+package com.example.family;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+// Bir dosyanın [position, position + count) aralığı. Soket'e FileChannel.transferTo ile
+// gönderilir; veri kullanıcı alanına kopyalanmadan kernel içinde aktarılır (sendfile).
+// Kanal paylaşılan bir segment kanalıdır, burada kapatılmaz.
+public class FileRegion {
+
+    private final FileChannel channel;
+    private long position;
+    private long remaining;
+
+    public FileRegion(FileChannel channel, long position, long count) {
+        this.channel = channel;
+        this.position = position;
+        this.remaining = count;
+    }
+
+    public long remaining() {
+        return remaining;
+    }
+
+    // Soket yazılabildiği kadar aktarır; her şey gittiyse true döner (non-blocking soketler için).
+    public boolean transferSome(WritableByteChannel target) throws IOException {
+        long sent = channel.transferTo(position, remaining, target);
+        position += sent;
+        remaining -= sent;
+        return remaining == 0;
+    }
+
+    // Blocking soket için: tamamı gidene kadar aktarır.
+    public void transferAll(WritableByteChannel target) throws IOException {
+        while (!transferSome(target)) {
+            // transferTo bir seferde tüm aralığı göndermeyebilir
+        }
+    }
+}
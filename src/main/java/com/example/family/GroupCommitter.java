@@ -0,0 +1,77 @@
+package com.example.family;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Eşzamanlı saveMessage çağrılarını toplayıp segment log'a tek seferde yazar ve
+// batch başına tek bir FileChannel.force (fsync) yapar. Çağıran, kaydı diske kalıcı olarak
+// yazılana kadar bekler; böylece "OK" gerçekten dayanıklı demektir.
+// İlk istek geldikten sonra en fazla maxWaitMicros beklenir ya da maxBatch dolunca yazılır.
+public class GroupCommitter {
+
+    private final SegmentLog log;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final BlockingQueue<SegmentLog.PendingRecord> queue = new LinkedBlockingQueue<>();
+
+    public GroupCommitter(SegmentLog log, int maxBatch, long maxWaitMicros) {
+        this.log = log;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+
+        Thread committer = new Thread(this::run, "GroupCommitter");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    public void append(int id, byte[] payload) throws IOException {
+        SegmentLog.PendingRecord record = new SegmentLog.PendingRecord(id, payload);
+        queue.add(record);
+        try {
+            record.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Group commit beklenirken kesildi", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    private void run() {
+        List<SegmentLog.PendingRecord> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                batch.add(queue.take());
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    // Önce beklemeden ne varsa al, sonra kalan süre kadar bekle
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) continue;
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    SegmentLog.PendingRecord next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                try {
+                    log.appendDurable(batch);
+                    for (SegmentLog.PendingRecord r : batch) r.done.complete(null);
+                } catch (IOException | RuntimeException | Error e) {
+                    // Beklenmeyen hatada da batch'i başarısız sayıp döngüye devam et; aksi halde
+                    // committer thread'i ölür ve sonraki tüm append çağrıları sonsuza kadar bekler.
+                    for (SegmentLog.PendingRecord r : batch) r.done.completeExceptionally(e);
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.family;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import family.NodeInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Tutarlı hash halkası: her üye halkaya virtualNodes kadar token ile yerleşir, bir ID'nin replikaları
+// hash'inden saat yönünde ilerlerken karşılaşılan ilk farklı üyelerdir. Yerleşim yalnızca ID'ye ve
+// üye listesine bağlıdır; bir üye eklenip çıktığında anahtarların yalnızca ~1/N'i yer değiştirir.
+// Halka değişmez (immutable); üyelik değişince NodeRegistry yenisini kurar.
+public final class HashRing {
+
+    private static final HashFunction HASH = Hashing.murmur3_32_fixed();
+
+    private final long version;
+    private final int[] tokens;
+    private final NodeInfo[] owners;
+    private final int memberCount;
+
+    HashRing(long version, Collection<NodeInfo> members, int virtualNodes) {
+        this.version = version;
+        this.memberCount = members.size();
+
+        // Token'ları üyeyle birlikte sıralamak için (token << 32 | üye sırası) tek long'da tutulur
+        NodeInfo[] byIndex = members.toArray(new NodeInfo[0]);
+        Arrays.sort(byIndex, (a, b) -> a.getHost().equals(b.getHost())
+                ? Integer.compare(a.getPort(), b.getPort()) : a.getHost().compareTo(b.getHost()));
+        long[] entries = new long[byIndex.length * virtualNodes];
+        int n = 0;
+        for (int m = 0; m < byIndex.length; m++) {
+            String name = byIndex[m].getHost() + ":" + byIndex[m].getPort() + "#";
+            for (int v = 0; v < virtualNodes; v++) {
+                int token = HASH.hashString(name + v, StandardCharsets.UTF_8).asInt();
+                entries[n++] = ((long) token << 32) | m;
+            }
+        }
+        Arrays.sort(entries);
+
+        this.tokens = new int[entries.length];
+        this.owners = new NodeInfo[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            tokens[i] = (int) (entries[i] >> 32);
+            owners[i] = byIndex[(int) entries[i]];
+        }
+    }
+
+    long version() {
+        return version;
+    }
+
+    // ID'nin replika kümesi, tercih sırasıyla; exclude (lider) atlanır. Yeterli üye yoksa daha kısa liste döner.
+    public List<NodeInfo> replicas(int id, int count, NodeInfo exclude) {
+        List<NodeInfo> selected = new ArrayList<>(count);
+        if (tokens.length == 0 || count <= 0) return selected;
+
+        int start = Arrays.binarySearch(tokens, HASH.hashInt(id).asInt());
+        if (start < 0) start = -start - 1;
+
+        for (int i = 0; i < tokens.length && selected.size() < count && selected.size() < memberCount; i++) {
+            NodeInfo owner = owners[(start + i) % tokens.length];
+            if (exclude != null && owner.getPort() == exclude.getPort() && owner.getHost().equals(exclude.getHost())) {
+                continue;
+            }
+            if (!selected.contains(owner)) {
+                selected.add(owner);
+            }
+        }
+        return selected;
+    }
+}
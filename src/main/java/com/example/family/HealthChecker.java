@@ -0,0 +1,110 @@
+package com.example.family;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import family.Empty;
+import family.FamilyView;
+import family.NodeInfo;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Üyeleri periyodik olarak yoklar. Tüm yoklamalar havuzdaki kanallar üzerinden aynı anda (async)
+// gönderilir ve her birinin kendi deadline'ı vardır; takılan bir üye diğerlerinin tespitini geciktirmez.
+// Tek bir başarısız yoklama üyeyi yalnızca "şüpheli" yapar; art arda maxFailures başarısızlıktan sonra
+// üye aileden çıkarılır. Cevabı gelmemiş bir üyeye yeni yoklama gönderilmez.
+public class HealthChecker {
+
+    private final NodeRegistry registry;
+    private final NodeInfo self;
+    private final long intervalMs;
+    private final long timeoutMs;
+    private final int maxFailures;
+    private final ConcurrentHashMap<NodeInfo, MemberHealth> members = new ConcurrentHashMap<>();
+
+    public HealthChecker(NodeRegistry registry, NodeInfo self, long intervalMs, long timeoutMs, int maxFailures) {
+        this.registry = registry;
+        this.self = self;
+        this.intervalMs = intervalMs;
+        this.timeoutMs = timeoutMs;
+        this.maxFailures = Math.max(1, maxFailures);
+    }
+
+    public void start() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread t = new Thread(task, "HealthChecker");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::sweep, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isSuspected(NodeInfo node) {
+        MemberHealth health = members.get(node);
+        return health != null && health.failures > 0;
+    }
+
+    private void sweep() {
+        List<NodeInfo> current = registry.snapshot();
+        members.keySet().retainAll(current);
+
+        for (NodeInfo n : current) {
+            if (n.getPort() == self.getPort()) {
+                continue;
+            }
+
+            MemberHealth health = members.computeIfAbsent(n, k -> new MemberHealth());
+            synchronized (health) {
+                if (health.inFlight) continue; // önceki yoklama henüz deadline'a ulaşmadı
+                health.inFlight = true;
+            }
+
+            Futures.addCallback(
+                    registry.channels().futureStub(n)
+                            .withDeadlineAfter(timeoutMs, TimeUnit.MILLISECONDS)
+                            .getFamily(Empty.newBuilder().build()),
+                    new FutureCallback<FamilyView>() {
+                        @Override
+                        public void onSuccess(FamilyView view) {
+                            synchronized (health) {
+                                if (health.failures > 0) {
+                                    System.out.printf("Node %s:%d yeniden yanıt veriyor, şüphe kaldırıldı.%n",
+                                            n.getHost(), n.getPort());
+                                }
+                                health.failures = 0;
+                                health.inFlight = false;
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            int failures;
+                            synchronized (health) {
+                                failures = ++health.failures;
+                                health.inFlight = false;
+                            }
+
+                            if (failures < maxFailures) {
+                                System.out.printf("Node %s:%d yanıt vermedi (%d/%d), şüpheli.%n",
+                                        n.getHost(), n.getPort(), failures, maxFailures);
+                                return;
+                            }
+                            System.out.printf("Node %s:%d yanıt vermiyor, aileden çıkarılıyor...%n",
+                                    n.getHost(), n.getPort());
+                            members.remove(n, health);
+                            registry.remove(n);
+                        }
+                    },
+                    MoreExecutors.directExecutor());
+        }
+    }
+
+    private static final class MemberHealth {
+        int failures;
+        boolean inFlight;
+    }
+}
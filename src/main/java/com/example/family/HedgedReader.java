@@ -0,0 +1,183 @@
+package com.example.family;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import family.MessageId;
+import family.NodeInfo;
+import family.StoredMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bir mesajı tutan üyelerden okur. İstek önce ilk sahibe gider; son başarılı okumaların
+// percentile'ı kadar sürede cevap gelmezse ikinci sahibe de gönderilir (hedge) ve ilk geçerli
+// cevap alınır, diğer çağrı iptal edilir. Hata dönen çağrıların yerine hemen sıradaki sahip denenir.
+// Zamanlayıcıyla en fazla bir hedge açılır; böylece ek yük okumaların küçük bir kısmıyla sınırlı kalır.
+// Sahiplerin sırası ReadLoadTracker ile (power-of-two-choices) belirlenir; her çağrının süresi ona bildirilir.
+public class HedgedReader {
+
+    private static final int SAMPLES = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final ChannelPool channels;
+    private final ReadLoadTracker loads;
+    private final long deadlineMs;
+    private final int percentile;
+    private final long minDelayNanos;
+
+    private final long[] samples = new long[SAMPLES];
+    private int sampleCount;
+    private int nextSample;
+    private volatile long hedgeDelayNanos;
+
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    public HedgedReader(ChannelPool channels, ReadLoadTracker loads, long deadlineMs, int percentile,
+                        long initialDelayMs, long minDelayMs) {
+        this.channels = channels;
+        this.loads = loads;
+        this.deadlineMs = deadlineMs;
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(initialDelayMs);
+    }
+
+    // Hiçbir sahipten geçerli cevap gelmezse null.
+    public String read(int msgId, List<NodeInfo> holders) throws InterruptedException {
+        if (holders.isEmpty()) return null;
+        reads.incrementAndGet();
+        holders = loads.order(holders);
+
+        MessageId request = MessageId.newBuilder().setId(msgId).build();
+        BlockingQueue<Attempt> done = new LinkedBlockingQueue<>();
+        List<ListenableFuture<StoredMessage>> calls = new ArrayList<>(holders.size());
+        int finished = 0;
+        int hedgeIndex = -1;
+        boolean hedged = percentile <= 0; // 0: hedge kapalı, yalnızca sıralı failover
+        long hedgeAt = System.nanoTime() + hedgeDelayNanos;
+
+        try {
+            launch(request, holders, calls, done);
+            while (true) {
+                if (finished == calls.size()) {
+                    // Açık çağrıların hepsi başarısız: sıradaki sahibe geç (failover)
+                    if (calls.size() == holders.size()) return null;
+                    launch(request, holders, calls, done);
+                    continue;
+                }
+
+                Attempt attempt;
+                if (!hedged && calls.size() < holders.size()) {
+                    attempt = done.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (attempt == null) {
+                        hedged = true;
+                        hedgeIndex = calls.size();
+                        hedges.incrementAndGet();
+                        System.out.printf("   -> %d mesaj için %d ms içinde cevap yok, %d düğümüne de soruluyor.%n",
+                                msgId, TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos),
+                                holders.get(calls.size()).getPort());
+                        launch(request, holders, calls, done);
+                        continue;
+                    }
+                } else {
+                    // Her çağrının deadline'ı olduğundan take sonsuza dek beklemez
+                    attempt = done.take();
+                }
+                finished++;
+
+                if (attempt.text != null) {
+                    record(attempt.latencyNanos);
+                    if (attempt.index == hedgeIndex) hedgeWins.incrementAndGet();
+                    return attempt.text;
+                }
+                System.out.printf("   --> %d düğümünden alınamadı.%n", holders.get(attempt.index).getPort());
+            }
+        } finally {
+            for (ListenableFuture<StoredMessage> call : calls) {
+                call.cancel(true); // kaybeden çağrılar gRPC tarafında iptal edilir
+            }
+        }
+    }
+
+    private void launch(MessageId request, List<NodeInfo> holders, List<ListenableFuture<StoredMessage>> calls,
+                        BlockingQueue<Attempt> done) {
+        int index = calls.size();
+        NodeInfo target = holders.get(index);
+        long started = System.nanoTime();
+        System.out.printf("   -> %d mesaj, %d düğümünden alınmayı deniyor. %n", request.getId(), target.getPort());
+
+        loads.started(target);
+        ListenableFuture<StoredMessage> call = channels.futureStub(target)
+                .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                .retrieve(request);
+        calls.add(call);
+
+        Futures.addCallback(call, new FutureCallback<StoredMessage>() {
+            @Override
+            public void onSuccess(StoredMessage response) {
+                String text = response.getText();
+                boolean valid = text != null && !text.isEmpty() && !text.startsWith("ERROR");
+                long latency = System.nanoTime() - started;
+                loads.finished(target, latency);
+                done.add(new Attempt(index, valid ? text : null, latency));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                long latency = System.nanoTime() - started;
+                if (t instanceof CancellationException) {
+                    loads.cancelled(target, latency);
+                } else {
+                    // Hatalar deadline kadar yavaş sayılır; hızlıca "connection refused" dönen ölü üye ucuz görünmesin
+                    loads.finished(target, Math.max(latency, TimeUnit.MILLISECONDS.toNanos(deadlineMs)));
+                }
+                done.add(new Attempt(index, null, latency));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    // Başarılı okuma sürelerini halka buffer'da tutar, hedge gecikmesini ara ara yeniden hesaplar.
+    private void record(long latencyNanos) {
+        long[] copy = null;
+        synchronized (samples) {
+            samples[nextSample] = latencyNanos;
+            nextSample = (nextSample + 1) % SAMPLES;
+            if (sampleCount < SAMPLES) sampleCount++;
+            if (nextSample % RECOMPUTE_EVERY == 0) {
+                copy = Arrays.copyOf(samples, sampleCount);
+            }
+        }
+        if (copy != null) {
+            Arrays.sort(copy);
+            int index = Math.min(copy.length - 1, (int) Math.ceil(copy.length * percentile / 100.0) - 1);
+            hedgeDelayNanos = Math.max(minDelayNanos, copy[Math.max(0, index)]);
+        }
+    }
+
+    public String stats() {
+        return String.format("reads %d, hedged %d, hedge wins %d, hedge delay %.1f ms (p%d)",
+                reads.get(), hedges.get(), hedgeWins.get(), hedgeDelayNanos / 1e6, percentile);
+    }
+
+    private static final class Attempt {
+        final int index;
+        final String text;
+        final long latencyNanos;
+
+        Attempt(int index, String text, long latencyNanos) {
+            this.index = index;
+            this.text = text;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+}
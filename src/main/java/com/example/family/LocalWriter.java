@@ -0,0 +1,62 @@
+package com.example.family;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Liderin yerel kopyasını SET yolundan ayırır: yazım arka planda yapılır, çağıran bir future alır ve
+// replikasyonla aynı anda ilerler. Aynı ID her zaman aynı şeride (tek thread'li executor) düşer, böylece
+// bir ID'nin yazımları gönderildiği sırayla diske iner. Henüz diske inmemiş değerler pending'de tutulur
+// ve okumalar önce buraya bakar (diskteki eski değer okunmasın).
+public class LocalWriter {
+
+    private final MessageHandler handler;
+    private final ExecutorService[] lanes;
+    private final ConcurrentHashMap<Integer, String> pending = new ConcurrentHashMap<>();
+
+    public LocalWriter(MessageHandler handler, int laneCount) {
+        this.handler = handler;
+        this.lanes = new ExecutorService[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            int lane = i;
+            lanes[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread t = new Thread(task, "LocalWriter-" + lane);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public CompletableFuture<Void> write(int id, String content) {
+        pending.put(id, content);
+        CompletableFuture<Void> done = CompletableFuture.runAsync(() -> {
+            try {
+                handler.saveMessage(id, content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, lanes[Math.floorMod(id, lanes.length)]);
+
+        // Yalnızca bu yazımın değeri hâlâ oradaysa kaldır; arada gelen daha yeni değer kalmalı
+        done.whenComplete((ignored, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                System.err.printf("Yerel yazım başarısız (%d): %s%n", id, cause.getMessage());
+            }
+            pending.remove(id, content);
+        });
+        return done;
+    }
+
+    // Diske inmemiş en son değer; yoksa null.
+    public String pending(int id) {
+        return pending.get(id);
+    }
+
+    public int inFlight() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.family;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+// Mesaj ID -> replika listesi index'i; ConcurrentHashMap<Integer, List<NodeInfo>> yerine.
+// Anahtarlar int[] içinde, değerler long[] içinde (open addressing, linear probing) durur.
+// Değer, en fazla 4 üye slot'unu (NodeRegistry.slotOf) 16'şar bitte paketler; girdi başına
+// ~12-24 bayt. 4'ten fazla sahibi olan nadir ID'ler ayrıca overflow map'te tutulur.
+// Segment başına bir StampedLock vardır; okumalar optimistic'tir ve nesne ayırmaz.
+public class LocationIndex {
+
+    public static final long ABSENT = 0L;
+    private static final int SLOTS_PER_VALUE = 4;
+    private static final int OVERFLOW = 0xFFFF;
+    private static final int EMPTY_KEY = Integer.MIN_VALUE;
+    private static final int SEGMENT_BITS = 6;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final ConcurrentHashMap<Integer, int[]> overflow = new ConcurrentHashMap<>();
+    private volatile long minKeyValue = ABSENT; // EMPTY_KEY ile çakışan ID için ayrı alan
+
+    public interface Visitor {
+        void accept(int id, long holders);
+    }
+
+    public LocationIndex() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(1024);
+        }
+    }
+
+    // Paketlenmiş sahip listesini döner; yoksa ABSENT (0).
+    public long get(int id) {
+        if (id == EMPTY_KEY) return minKeyValue;
+        int hash = mix(id);
+        return segments[hash >>> (32 - SEGMENT_BITS)].get(id, hash);
+    }
+
+    public void put(int id, int[] slots) {
+        long packed = pack(slots);
+        if (slots.length > SLOTS_PER_VALUE) {
+            overflow.put(id, slots.clone());
+        } else {
+            overflow.remove(id);
+        }
+
+        if (id == EMPTY_KEY) {
+            minKeyValue = packed;
+            return;
+        }
+        int hash = mix(id);
+        segments[hash >>> (32 - SEGMENT_BITS)].put(id, hash, packed);
+    }
+
+    // Yalnızca ID yoksa ekler; kurtarma sırasında daha yeni değerlerin üzerine yazmamak için.
+    public boolean putIfAbsent(int id, int[] slots) {
+        long packed = pack(slots);
+        boolean inserted;
+        if (id == EMPTY_KEY) {
+            synchronized (this) {
+                inserted = minKeyValue == ABSENT;
+                if (inserted) minKeyValue = packed;
+            }
+        } else {
+            int hash = mix(id);
+            inserted = segments[hash >>> (32 - SEGMENT_BITS)].putIfAbsent(id, hash, packed);
+        }
+        if (inserted && slots.length > SLOTS_PER_VALUE) {
+            overflow.put(id, slots.clone());
+        }
+        return inserted;
+    }
+
+    public void remove(int id) {
+        overflow.remove(id);
+        if (id == EMPTY_KEY) {
+            minKeyValue = ABSENT;
+            return;
+        }
+        int hash = mix(id);
+        segments[hash >>> (32 - SEGMENT_BITS)].remove(id, hash);
+    }
+
+    public long size() {
+        long total = minKeyValue == ABSENT ? 0 : 1;
+        for (Segment s : segments) total += s.size();
+        return total;
+    }
+
+    // Tüm girdileri gezer (segment segment, her segment kendi kilidi altında).
+    public void forEach(Visitor visitor) {
+        if (minKeyValue != ABSENT) visitor.accept(EMPTY_KEY, minKeyValue);
+        for (Segment s : segments) s.forEach(visitor);
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    public int segmentOf(int id) {
+        return id == EMPTY_KEY ? 0 : mix(id) >>> (32 - SEGMENT_BITS);
+    }
+
+    // Segmenti expected yeni girdi için önceden büyütür. Kurtarmada bir bucket segmentin kendi
+    // tablo sırasıyla gelir; küçük tabloya bu sırayla eklemek uzun probe kümeleri oluşturur.
+    public void ensureCapacity(int segment, int expected) {
+        segments[segment].ensureCapacity(expected);
+    }
+
+    // Tek bir segmentin girdilerini gezer; segmentOf ile birlikte ID'leri gruplamak için.
+    public void forEach(int segment, Visitor visitor) {
+        if (segment == 0 && minKeyValue != ABSENT) visitor.accept(EMPTY_KEY, minKeyValue);
+        segments[segment].forEach(visitor);
+    }
+
+    // --- Paketlenmiş değer yardımcıları (nesne ayırmaz) ---
+
+    public int holderCount(int id, long packed) {
+        if (packed == ABSENT) return 0;
+        if (slotField(packed, SLOTS_PER_VALUE - 1) == OVERFLOW) {
+            int[] all = overflow.get(id);
+            return all == null ? SLOTS_PER_VALUE - 1 : all.length;
+        }
+        int n = 0;
+        while (n < SLOTS_PER_VALUE && slotField(packed, n) != 0) n++;
+        return n;
+    }
+
+    public int holderSlot(int id, long packed, int i) {
+        if (slotField(packed, SLOTS_PER_VALUE - 1) == OVERFLOW) {
+            int[] all = overflow.get(id);
+            if (all != null) return all[i];
+        }
+        return slotField(packed, i) - 1;
+    }
+
+    public int[] holderSlots(int id) {
+        long packed = get(id);
+        int n = holderCount(id, packed);
+        int[] slots = new int[n];
+        for (int i = 0; i < n; i++) slots[i] = holderSlot(id, packed, i);
+        return slots;
+    }
+
+    private static int slotField(long packed, int i) {
+        return (int) (packed >>> (16 * i)) & 0xFFFF;
+    }
+
+    // Slot'lar 1 artırılarak saklanır ki 0 "boş" anlamına gelsin. Boş liste de bilinen bir
+    // konum olduğu için (ör. replika yok) ABSENT'ten ayırmak adına en üst bit işaretlenir.
+    private static long pack(int[] slots) {
+        long packed = 0;
+        int inline = Math.min(slots.length, SLOTS_PER_VALUE);
+        for (int i = 0; i < inline; i++) {
+            if (slots[i] < 0 || slots[i] >= OVERFLOW - 1) {
+                throw new IllegalArgumentException("Geçersiz üye slot'u: " + slots[i]);
+            }
+            packed |= (long) (slots[i] + 1) << (16 * i);
+        }
+        if (slots.length > SLOTS_PER_VALUE) {
+            packed = (packed & ~(0xFFFFL << (16 * (SLOTS_PER_VALUE - 1)))) | ((long) OVERFLOW << (16 * (SLOTS_PER_VALUE - 1)));
+        }
+        return packed == 0 ? Long.MIN_VALUE : packed;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Anahtar ve değer dizileri birlikte değişir: resize yeni bir Table kurar ve referansı tek yazımla
+    // değiştirir. Optimistic okuyucu referansı bir kez okuduğu için hiçbir zaman yeni keys ile eski
+    // values'u (farklı uzunlukta) karıştıramaz.
+    private static final class Table {
+        final int[] keys;
+        final long[] values;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            values = new long[capacity];
+            Arrays.fill(keys, EMPTY_KEY);
+        }
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private Table table;
+        private int size;
+
+        Segment(int capacity) {
+            table = new Table(capacity);
+        }
+
+        long get(int id, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                try {
+                    long result = probe(table, id, hash);
+                    if (lock.validate(stamp)) return result;
+                } catch (RuntimeException e) {
+                    // Yazıcıyla yarışan okuma tutarsız bir görüntü gördü; sonucu kilitli okumayla alınır
+                }
+            }
+
+            stamp = lock.readLock();
+            try {
+                return probe(table, id, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static long probe(Table table, int id, int hash) {
+            int[] keys = table.keys;
+            long[] values = table.values;
+            int mask = keys.length - 1;
+            for (int i = hash & mask, n = 0; n < keys.length; i = (i + 1) & mask, n++) {
+                int k = keys[i];
+                if (k == id) return values[i];
+                if (k == EMPTY_KEY) return ABSENT;
+            }
+            return ABSENT;
+        }
+
+        void put(int id, int hash, long value) {
+            long stamp = lock.writeLock();
+            try {
+                if ((size + 1) * 4L > table.keys.length * 3L) resize();
+                int[] keys = table.keys;
+                int mask = keys.length - 1;
+                int i = hash & mask;
+                while (keys[i] != EMPTY_KEY && keys[i] != id) i = (i + 1) & mask;
+                if (keys[i] == EMPTY_KEY) size++;
+                keys[i] = id;
+                table.values[i] = value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean putIfAbsent(int id, int hash, long value) {
+            long stamp = lock.writeLock();
+            try {
+                if ((size + 1) * 4L > table.keys.length * 3L) resize();
+                int[] keys = table.keys;
+                int mask = keys.length - 1;
+                int i = hash & mask;
+                while (keys[i] != EMPTY_KEY) {
+                    if (keys[i] == id) return false;
+                    i = (i + 1) & mask;
+                }
+                size++;
+                keys[i] = id;
+                table.values[i] = value;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(int id, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                int[] keys = table.keys;
+                long[] values = table.values;
+                int mask = keys.length - 1;
+                int i = hash & mask;
+                while (keys[i] != id) {
+                    if (keys[i] == EMPTY_KEY) return;
+                    i = (i + 1) & mask;
+                }
+                // Backward-shift silme: tombstone bırakmadan zinciri kapatır
+                int gap = i;
+                for (int j = (gap + 1) & mask; keys[j] != EMPTY_KEY; j = (j + 1) & mask) {
+                    int home = mix(keys[j]) & mask;
+                    boolean movable = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+                    if (movable) {
+                        keys[gap] = keys[j];
+                        values[gap] = values[j];
+                        gap = j;
+                    }
+                }
+                keys[gap] = EMPTY_KEY;
+                values[gap] = ABSENT;
+                size--;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void forEach(Visitor visitor) {
+            long stamp = lock.readLock();
+            try {
+                int[] keys = table.keys;
+                long[] values = table.values;
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != EMPTY_KEY) visitor.accept(keys[i], values[i]);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void ensureCapacity(int expected) {
+            long stamp = lock.writeLock();
+            try {
+                int capacity = table.keys.length;
+                while ((size + (long) expected) * 4L > capacity * 3L) capacity *= 2;
+                if (capacity != table.keys.length) resize(capacity);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void resize() {
+            resize(table.keys.length * 2);
+        }
+
+        private void resize(int capacity) {
+            Table old = table;
+            Table resized = new Table(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] == EMPTY_KEY) continue;
+                int j = mix(old.keys[i]) & mask;
+                while (resized.keys[j] != EMPTY_KEY) j = (j + 1) & mask;
+                resized.keys[j] = old.keys[i];
+                resized.values[j] = old.values[i];
+            }
+            table = resized;
+        }
+    }
+}
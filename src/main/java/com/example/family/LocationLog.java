@@ -0,0 +1,580 @@
+package com.example.family;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.CRC32;
+
+// Liderin "hangi mesaj hangi portlarda" bilgisini tutan ikili, append-only günlük (messageMap.txt yerine).
+// Kayıt: [magic:short][id:int][count:short][port:int * count][crc32:int]; crc magic hariç kaydı kapsar.
+// Dosyalar: locations.snap (son compaction anındaki tam durum) + locations.log (snapshot'tan sonraki kayıtlar).
+// Log [magic:int][generation:long] başlığıyla açılır; generation'ı snapshot'tan eskiyse log zaten
+// snapshot'a katılmıştır ve yeniden oynatılmaz.
+// Snapshot kayıtları index segmentlerine göre bucket'lanır: başlık [magic][generation][bucketCount]
+// [offset:long * (bucketCount + 1)][kayıt sayısı:int * bucketCount]. Açılışta bucket'lar fork-join havuzunda paralel
+// çözülür; her bucket en fazla mapWindowBytes'lık pencerelerle map'lenir, böylece snapshot 2 GB'ı aşabilir;
+// lazy modda sunucu hemen başlar ve henüz yüklenmemiş bir ID sorulursa o bucket hemen yüklenir.
+// Kayıtlardan sonra liderin diğer durumu için CRC'li opak bir blok gelir: [length:int][state][crc32:int].
+// append yalnızca bellekteki buffer'a yazar; arka plandaki flusher her flushIntervalMs'de buffer'ı tek
+// write + force ile diske basar. Log compactRecords kayda ulaşınca ya da snapshotIntervalMs dolunca güncel
+// index snapshot'a yazılır ve log sıfırlanır. Snapshot yazılırken append'ler buffer'da birikmeye devam eder
+// (fuzzy snapshot + log tail); SET yolu beklemez. append bir sıra numarası döner; awaitDurable ile çağıran
+// kendi kaydı (ve o ana kadar biriken diğerleri tek force ile) diske inene kadar bekleyebilir.
+public class LocationLog implements Closeable {
+
+    public static final short RECORD_MAGIC = 0x4C4F;
+    public static final int HEADER_SIZE = 12;
+    private static final int SNAPSHOT_MAGIC = 0x4C4F4333;        // "LOC3"
+    private static final int TAIL_MAGIC = 0x4C4F434C;            // "LOCL"
+    private static final int EARLY_FLUSH_BYTES = 256 * 1024;
+    private static final int MAP_WINDOW_BYTES = 256 * 1024 * 1024;
+
+    public interface Sink {
+        void accept(int id, int[] ports);
+    }
+
+    // Compaction sırasında güncel durumu (id -> portlar) bucket bucket verir.
+    public interface Source {
+        int buckets();
+
+        int bucketOf(int id);
+
+        // Bucket yüklenmeden önce beklenen kayıt sayısını bildirir (hedef yapı önceden büyüyebilsin).
+        void presize(int bucket, int records);
+
+        void forEach(int bucket, Sink sink);
+
+        // Snapshot'a konumlarla birlikte yazılacak ek durum (ör. üye listesi).
+        byte[] state();
+    }
+
+    private final Path snapshotPath;
+    private final Path tailPath;
+    private final long flushIntervalMs;
+    private final long compactRecords;
+    private final long snapshotIntervalNanos;
+    private final int mapWindowBytes;
+    private final Object fileLock = new Object();
+    private final CRC32 appendCrc = new CRC32();
+
+    private Source source;
+    private FileChannel tail;
+    private long tailSize;
+    private long generation;
+    private volatile long tailRecords;
+    private long appendedSeq; // this ile korunur
+    private volatile long flushedSeq;
+    private volatile boolean closed;
+    private long lastSnapshotNanos = System.nanoTime();
+    private boolean compactionDisabled; // yalnızca flusher thread'i
+    private byte[] restoredState;
+
+    // Snapshot kurtarma durumu: bucket başına bir future; claimed ile her bucket tam bir kez çözülür
+    private volatile FileChannel snapshot;
+    private long[] bucketOffsets;
+    private int[] bucketRecords;
+    private boolean bucketsMatchSource;
+    private Sink snapshotSink;
+    private AtomicIntegerArray claimed;
+    private List<CompletableFuture<Long>> buckets;
+    private volatile CompletableFuture<Long> recovered = CompletableFuture.completedFuture(0L);
+
+    // append tarafı: this ile korunur; flusher iki buffer'ı yer değiştirir
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+
+    public LocationLog(Path dir, long flushIntervalMs, long compactRecords, long snapshotIntervalMs) throws IOException {
+        this(dir, flushIntervalMs, compactRecords, snapshotIntervalMs, MAP_WINDOW_BYTES);
+    }
+
+    // mapWindowBytes yalnızca testlerde küçültülür; en büyük kayıttan (~256 KB) büyük olmalıdır.
+    LocationLog(Path dir, long flushIntervalMs, long compactRecords, long snapshotIntervalMs,
+                int mapWindowBytes) throws IOException {
+        this.mapWindowBytes = mapWindowBytes;
+        Files.createDirectories(dir);
+        this.snapshotPath = dir.resolve("locations.snap");
+        this.tailPath = dir.resolve("locations.log");
+        this.flushIntervalMs = flushIntervalMs;
+        this.compactRecords = compactRecords;
+        this.snapshotIntervalNanos = snapshotIntervalMs * 1_000_000L;
+    }
+
+    public boolean exists() {
+        return Files.exists(snapshotPath) || Files.exists(tailPath);
+    }
+
+    // Önce log'u sırayla tailSink'e verir (küçüktür, sırası önemlidir), sonra snapshot bucket'larını
+    // paralel olarak snapshotSink'e verir. snapshotSink mevcut ID'lerin üzerine yazmamalıdır (putIfAbsent):
+    // log ve kurtarma sırasında gelen yeni yazımlar snapshot'tan daha günceldir.
+    // lazy değilse tüm bucket'lar yüklenene kadar bekler. Log'dan okunan kayıt sayısını döner.
+    public long open(Source source, Sink tailSink, Sink snapshotSink, boolean lazy, int parallelism) throws IOException {
+        this.source = source;
+        this.snapshotSink = snapshotSink;
+        mapSnapshot();
+
+        tail = FileChannel.open(tailPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = tail.size();
+        boolean replay = false;
+        if (size >= HEADER_SIZE) {
+            MappedByteBuffer buffer = tail.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long tailGeneration = readTailHeader(buffer);
+            replay = tailGeneration == generation;
+            if (replay) {
+                long[] count = new long[1];
+                int end = parse(buffer, HEADER_SIZE, (int) size, (id, ports) -> { tailSink.accept(id, ports); count[0]++; });
+                if (end < size) {
+                    System.err.printf("%s: sondaki %d bayt bozuk/yarım, kesiliyor%n", tailPath, size - end);
+                    tail.truncate(end);
+                }
+                tailSize = end;
+                tailRecords = count[0];
+            }
+        }
+        if (!replay) {
+            // Yeni log ya da snapshot'a zaten katılmış eski log: başlıktan başla
+            resetTail();
+        }
+
+        startRecovery(lazy && bucketsMatchSource, parallelism);
+        if (!lazy || !bucketsMatchSource) {
+            recovered.join();
+        }
+
+        Thread flusher = new Thread(this::runFlusher, "LocationLogFlusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        return tailRecords;
+    }
+
+    // Son snapshot'taki ek durum; snapshot yoksa ya da blok bozuksa null.
+    public byte[] restoredState() {
+        return restoredState;
+    }
+
+    // Tüm snapshot bucket'ları yüklendiğinde snapshot'tan okunan kayıt sayısıyla tamamlanır.
+    public CompletableFuture<Long> recovered() {
+        return recovered;
+    }
+
+    // Lazy kurtarmada ID'nin bucket'ı henüz yüklenmediyse çağıran thread'de yükler
+    // (başka bir thread yüklüyorsa onu bekler). Yükleme bittiyse hiçbir şey yapmaz.
+    public void ensureLoaded(int id) {
+        if (recovered.isDone()) return;
+        loadBucket(source.bucketOf(id)).join();
+    }
+
+    // Yalnızca başlık ve durum bloğu okunur; kayıtlar bucket yüklenirken pencere pencere map'lenir.
+    private void mapSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            bucketOffsets = new long[] {0};
+            bucketRecords = new int[0];
+            bucketsMatchSource = true;
+            return;
+        }
+
+        FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = read(channel, 0, (int) Math.min(size, HEADER_SIZE + 4));
+            if (header.limit() < HEADER_SIZE + 4 || header.getInt(0) != SNAPSHOT_MAGIC) {
+                throw new IOException(snapshotPath + " geçerli bir konum dosyası değil");
+            }
+            generation = header.getLong(4);
+            int count = header.getInt(12);
+            long tableSize = (count + 1) * 8L + count * 4L;
+            if (count < 0 || HEADER_SIZE + 4 + tableSize > size) {
+                throw new IOException(snapshotPath + " geçerli bir konum dosyası değil");
+            }
+
+            ByteBuffer table = read(channel, HEADER_SIZE + 4, (int) tableSize);
+            bucketOffsets = new long[count + 1];
+            bucketRecords = new int[count];
+            for (int i = 0; i <= count; i++) {
+                bucketOffsets[i] = table.getLong(i * 8);
+            }
+            for (int i = 0; i < count; i++) {
+                bucketRecords[i] = table.getInt((count + 1) * 8 + i * 4);
+            }
+            bucketsMatchSource = count == source.buckets();
+            restoredState = readState(channel, bucketOffsets[count], size);
+            snapshot = channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void startRecovery(boolean lazy, int parallelism) throws IOException {
+        int count = bucketOffsets.length - 1;
+        claimed = new AtomicIntegerArray(Math.max(count, 0));
+        buckets = new ArrayList<>(Math.max(count, 0));
+        for (int b = 0; b < count; b++) {
+            buckets.add(new CompletableFuture<>());
+        }
+        if (count <= 0) {
+            closeSnapshot();
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        for (int b = 0; b < count; b++) {
+            int bucket = b;
+            pool.execute(() -> loadBucket(bucket));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(buckets.toArray(new CompletableFuture<?>[0]));
+        all.whenComplete((ignored, error) -> {
+            pool.shutdown();
+            try {
+                closeSnapshot(); // map'ler kanal kapandıktan sonra da geçerli; GC bıraksın
+            } catch (IOException e) {
+                System.err.println(snapshotPath + " kapatılamadı: " + e.getMessage());
+            }
+        });
+        recovered = all.thenApply(ignored -> {
+            long total = 0;
+            for (CompletableFuture<Long> bucket : buckets) total += bucket.join();
+            return total;
+        });
+    }
+
+    private void closeSnapshot() throws IOException {
+        FileChannel channel = snapshot;
+        snapshot = null;
+        if (channel != null) channel.close();
+    }
+
+    private CompletableFuture<Long> loadBucket(int bucket) {
+        CompletableFuture<Long> future = buckets.get(bucket);
+        if (!claimed.compareAndSet(bucket, 0, 1)) return future;
+
+        try {
+            long[] count = new long[1];
+            long from = bucketOffsets[bucket];
+            long to = bucketOffsets[bucket + 1];
+            if (bucketsMatchSource && bucketRecords[bucket] > 0) {
+                source.presize(bucket, bucketRecords[bucket]);
+            }
+            long end = parseWindows(snapshot, from, to, (id, ports) -> { snapshotSink.accept(id, ports); count[0]++; });
+            if (end < to) {
+                System.err.printf("%s: bucket %d içinde %d. bayttan sonrası bozuk, yok sayıldı%n", snapshotPath, bucket, end);
+            }
+            future.complete(count[0]);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    // [from, to) aralığını en fazla mapWindowBytes'lık map'lerle çözer. Pencere sınırında yarım kalan kayıt
+    // bir sonraki pencerenin başına alınır; ilk geçersiz kaydın başlangıcını (ya da to'yu) döner.
+    private long parseWindows(FileChannel channel, long from, long to, Sink sink) throws IOException {
+        long position = from;
+        while (position < to) {
+            int length = (int) Math.min(to - position, mapWindowBytes);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int end = parse(window, 0, length, sink);
+            boolean last = position + length == to;
+            position += end;
+            if (end < length && (last || end == 0)) break;
+        }
+        return position;
+    }
+
+    // Kaydı buffer'a ekler ve sıra numarasını döner (awaitDurable için).
+    public long append(int id, int[] ports) {
+        int recordSize = 2 + 4 + 2 + ports.length * 4 + 4;
+        synchronized (this) {
+            if (pending.remaining() < recordSize) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + recordSize));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+
+            int start = pending.position();
+            pending.putShort(RECORD_MAGIC).putInt(id).putShort((short) ports.length);
+            for (int port : ports) {
+                pending.putInt(port);
+            }
+            appendCrc.reset();
+            appendCrc.update(pending.array(), start + 2, pending.position() - start - 2);
+            pending.putInt((int) appendCrc.getValue());
+
+            if (pending.position() >= EARLY_FLUSH_BYTES) {
+                notifyAll();
+            }
+            return ++appendedSeq;
+        }
+    }
+
+    // seq numaralı kayıt diske inene kadar bekler. Flusher'ı beklemez, bekleyen her şeyi kendisi basar;
+    // aynı anda bekleyenler fileLock'ta sıraya girer ve çoğu zaman öncekinin force'u ile tamamlanır.
+    // Sıkıştırma fileLock'u tuttuğu için snapshot yazılırken bekleme snapshot süresi kadar uzar.
+    public void awaitDurable(long seq) throws IOException {
+        if (flushedSeq >= seq) return;
+        synchronized (fileLock) {
+            if (flushedSeq >= seq) return;
+            flush();
+        }
+    }
+
+    public long tailRecords() {
+        return tailRecords;
+    }
+
+    // Bekleyen kayıtları log'a yazar ve diske kalıcı hale getirir.
+    public void flush() throws IOException {
+        synchronized (fileLock) {
+            ByteBuffer batch;
+            long records;
+            long upTo;
+            synchronized (this) {
+                if (pending.position() == 0) return;
+                batch = pending;
+                pending = writing;
+                writing = batch;
+                upTo = appendedSeq;
+            }
+            batch.flip();
+            records = countRecords(batch);
+            while (batch.hasRemaining()) {
+                tailSize += tail.write(batch, tailSize);
+            }
+            batch.clear();
+            tail.force(false);
+            tailRecords += records;
+            flushedSeq = upTo;
+        }
+    }
+
+    // Güncel durumu yeni bir snapshot'a yazar (tmp + force + atomik rename) ve log'u sıfırlar.
+    // index'e yazım append'den önce yapıldığı için log'daki her kayıt snapshot'ta zaten vardır;
+    // compaction sırasında gelen append'ler buffer'da bekler ve yeni log'a yazılır.
+    // Kurtarma sürüyorsa önce bitmesi beklenir, yoksa yüklenmemiş bucket'lar snapshot'tan düşerdi;
+    // kurtarma başarısız olduysa eksik haritayla eski snapshot'ın üzerine yazılmaz.
+    public void compact() throws IOException {
+        try {
+            recovered.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException("snapshot kurtarması başarısız, sıkıştırma yapılmadı: " + cause.getMessage(), cause);
+        }
+        synchronized (fileLock) {
+            flush();
+            long nextGeneration = generation + 1;
+            Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+
+            long[] written = new long[1];
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                int bucketCount = source.buckets();
+                long[] offsets = new long[bucketCount + 1];
+                int[] records = new int[bucketCount];
+                int headerSize = HEADER_SIZE + 4 + offsets.length * 8 + records.length * 4;
+                long[] position = {headerSize};
+
+                ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+                CRC32 crc = new CRC32();
+                IOException[] failure = new IOException[1];
+
+                for (int bucket = 0; bucket < bucketCount; bucket++) {
+                    offsets[bucket] = position[0] + buffer.position();
+                    long before = written[0];
+                    source.forEach(bucket, (id, ports) -> {
+                        if (failure[0] != null) return;
+                        try {
+                            int recordSize = 2 + 4 + 2 + ports.length * 4 + 4;
+                            if (buffer.remaining() < recordSize) position[0] = drain(out, buffer, position[0]);
+                            int start = buffer.position();
+                            buffer.putShort(RECORD_MAGIC).putInt(id).putShort((short) ports.length);
+                            for (int port : ports) buffer.putInt(port);
+                            crc.reset();
+                            crc.update(buffer.array(), start + 2, buffer.position() - start - 2);
+                            buffer.putInt((int) crc.getValue());
+                            written[0]++;
+                        } catch (IOException e) {
+                            failure[0] = e;
+                        }
+                    });
+                    if (failure[0] != null) throw failure[0];
+                    records[bucket] = (int) (written[0] - before);
+                }
+                offsets[bucketCount] = position[0] + buffer.position();
+                position[0] = drain(out, buffer, position[0]);
+
+                byte[] state = source.state();
+                crc.reset();
+                crc.update(state);
+                ByteBuffer stateBlock = ByteBuffer.allocate(4 + state.length + 4);
+                stateBlock.putInt(state.length).put(state).putInt((int) crc.getValue());
+                drain(out, stateBlock, position[0]);
+
+                // Bucket tablosu en son, dosyanın başına yazılır
+                ByteBuffer header = ByteBuffer.allocate(headerSize);
+                header.putInt(SNAPSHOT_MAGIC).putLong(nextGeneration).putInt(bucketCount);
+                for (long offset : offsets) header.putLong(offset);
+                for (int count : records) header.putInt(count);
+                drain(out, header, 0);
+                out.force(true);
+            }
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            generation = nextGeneration;
+            lastSnapshotNanos = System.nanoTime();
+            resetTail();
+            System.out.printf("Konum günlüğü sıkıştırıldı: %d kayıt snapshot'a yazıldı (generation %d)%n",
+                    written[0], generation);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        synchronized (fileLock) {
+            flush();
+            tail.close();
+        }
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            try {
+                synchronized (this) {
+                    if (pending.position() < EARLY_FLUSH_BYTES) {
+                        wait(flushIntervalMs);
+                    }
+                }
+                if (closed) return;
+                flush();
+                boolean full = compactRecords > 0 && tailRecords >= compactRecords;
+                boolean due = snapshotIntervalNanos > 0 && tailRecords > 0
+                        && System.nanoTime() - lastSnapshotNanos >= snapshotIntervalNanos;
+                // Kurtarma bitmeden flusher bloklanmaz; başarısız kurtarmadan sonra sıkıştırma hiç yapılmaz
+                // (log büyümeye devam eder ama kayıt kaybolmaz)
+                if ((full || due) && recovered.isDone()) {
+                    if (!recovered.isCompletedExceptionally()) {
+                        compact();
+                    } else if (!compactionDisabled) {
+                        compactionDisabled = true;
+                        System.err.println("Konum günlüğü: snapshot kurtarması başarısız olduğu için sıkıştırma kapatıldı.");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                // Flusher thread'i ölürse sonraki hiçbir kayıt diske inmez
+                System.err.println("Konum günlüğü yazılamadı: " + e.getMessage());
+            }
+        }
+    }
+
+    private void resetTail() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(TAIL_MAGIC).putLong(generation).flip();
+        tail.truncate(0);
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += tail.write(header, position);
+        }
+        tail.force(false);
+        tailSize = position;
+        tailRecords = 0;
+    }
+
+    private static long drain(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    private byte[] readState(FileChannel channel, long from, long size) throws IOException {
+        if (size - from < 8) return null;
+        int length = read(channel, from, 4).getInt(0);
+        if (length < 0 || size - from - 8 < length) return null;
+
+        ByteBuffer block = read(channel, from + 4, length + 4);
+        byte[] state = new byte[length];
+        block.get(0, state);
+        CRC32 crc = new CRC32();
+        crc.update(state);
+        if ((int) crc.getValue() != block.getInt(length)) {
+            System.err.printf("%s: durum bloğu bozuk, yok sayıldı%n", snapshotPath);
+            return null;
+        }
+        return state;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+        return buffer.flip();
+    }
+
+    private long readTailHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != TAIL_MAGIC) {
+            throw new IOException(tailPath + " geçerli bir konum dosyası değil");
+        }
+        return buffer.getLong(4);
+    }
+
+    private static long countRecords(ByteBuffer batch) {
+        long count = 0;
+        int position = batch.position();
+        while (position < batch.limit()) {
+            int ports = batch.getShort(position + 6) & 0xFFFF;
+            position += 2 + 4 + 2 + ports * 4 + 4;
+            count++;
+        }
+        return count;
+    }
+
+    // [from, limit) aralığındaki kayıtları çözer; ilk geçersiz kaydın başlangıcını (ya da limit'i) döner.
+    // Buffer'ın kendi konumuna dokunmaz; aynı map üzerinde birden çok thread aynı anda çözebilir.
+    public static int parse(ByteBuffer buffer, int from, int limit, Sink sink) {
+        CRC32 crc = new CRC32();
+        int position = from;
+
+        while (limit - position >= 2 + 4 + 2 + 4) {
+            if (buffer.getShort(position) != RECORD_MAGIC) break;
+            int count = buffer.getShort(position + 6) & 0xFFFF;
+            int end = position + 2 + 4 + 2 + count * 4;
+            if (end + 4 > limit) break;
+
+            crc.reset();
+            ByteBuffer body = buffer.duplicate();
+            body.limit(end).position(position + 2);
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(end)) break;
+
+            int[] ports = new int[count];
+            for (int i = 0; i < count; i++) {
+                ports[i] = buffer.getInt(position + 8 + i * 4);
+            }
+            sink.accept(buffer.getInt(position + 2), ports);
+            position = end + 4;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.family;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+
+// (id, checksum) çiftleri üzerinde sabit derinlikli Merkle ağacı. Yaprak, ID'nin hash'inin üst
+// depth bitiyle seçilir; düğüm özeti altındaki girdi hash'lerinin toplamıdır (mod 2^64). Toplam
+// sıradan bağımsız olduğu için bir girdi değişince yalnızca yaprak-kök yolundaki depth+1 düğüme fark
+// eklenir; ağaç hiçbir zaman baştan hash'lenmez. Düğümler heap düzenindedir: kök 1, i'nin çocukları
+// 2i ve 2i+1, yapraklar [2^depth, 2^(depth+1)).
+public class MerkleTree {
+
+    private final int depth;
+    private final AtomicLongArray digests;
+    private final Leaf[] leaves;
+
+    public MerkleTree(int depth) {
+        this.depth = depth;
+        this.digests = new AtomicLongArray(2 << depth);
+        this.leaves = new Leaf[1 << depth];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new Leaf();
+        }
+    }
+
+    public static int checksum(String content) {
+        return checksum(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static int checksum(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes.duplicate());
+        return (int) crc.getValue();
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int leafOf(int id) {
+        return (1 << depth) + (depth == 0 ? 0 : mix32(id) >>> (32 - depth));
+    }
+
+    public long digest(int node) {
+        return digests.get(node);
+    }
+
+    // ID'nin checksum'ını ekler ya da değiştirir.
+    public void put(int id, int checksum) {
+        int node = leafOf(id);
+        long delta;
+        Leaf leaf = leaves[node - (1 << depth)];
+        synchronized (leaf) {
+            int i = leaf.indexOf(id);
+            if (i >= 0) {
+                if (leaf.checksums[i] == checksum) return;
+                delta = entryHash(id, checksum) - entryHash(id, leaf.checksums[i]);
+                leaf.checksums[i] = checksum;
+            } else {
+                leaf.add(id, checksum);
+                delta = entryHash(id, checksum);
+            }
+        }
+        propagate(node, delta);
+    }
+
+    public void remove(int id) {
+        int node = leafOf(id);
+        long delta;
+        Leaf leaf = leaves[node - (1 << depth)];
+        synchronized (leaf) {
+            int i = leaf.indexOf(id);
+            if (i < 0) return;
+            delta = -entryHash(id, leaf.checksums[i]);
+            leaf.removeAt(i);
+        }
+        propagate(node, delta);
+    }
+
+    // Yapraktaki girdiler: [0] ID'ler, [1] checksum'lar.
+    public int[][] entries(int leafNode) {
+        Leaf leaf = leaves[leafNode - (1 << depth)];
+        synchronized (leaf) {
+            return new int[][] {Arrays.copyOf(leaf.ids, leaf.size), Arrays.copyOf(leaf.checksums, leaf.size)};
+        }
+    }
+
+    public boolean isLeaf(int node) {
+        return node >= (1 << depth);
+    }
+
+    private void propagate(int node, long delta) {
+        for (int n = node; n >= 1; n >>>= 1) {
+            digests.addAndGet(n, delta);
+        }
+    }
+
+    private static long entryHash(int id, int checksum) {
+        long z = ((long) id << 32) | (checksum & 0xFFFFFFFFL);
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static int mix32(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Leaf {
+        int[] ids = new int[0];
+        int[] checksums = new int[0];
+        int size;
+
+        int indexOf(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) return i;
+            }
+            return -1;
+        }
+
+        void add(int id, int checksum) {
+            if (size == ids.length) {
+                int capacity = Math.max(4, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                checksums = Arrays.copyOf(checksums, capacity);
+            }
+            ids[size] = id;
+            checksums[size] = checksum;
+            size++;
+        }
+
+        void removeAt(int i) {
+            size--;
+            ids[i] = ids[size];
+            checksums[i] = checksums[size];
+        }
+    }
+}
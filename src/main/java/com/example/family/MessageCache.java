@@ -0,0 +1,94 @@
+package com.example.family;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Liderde readMessage / uzak retrieve önüne konan, bayt bütçeli LRU önbellek.
+// SET ve uzak fetch ile doldurulur, üzerine yazmada eski değer geçersiz kılınır.
+public class MessageCache implements ReadCache {
+
+    // String başına yaklaşık nesne + map girdisi yükü
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, String> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long usedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public MessageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public String get(int id) {
+        String value;
+        synchronized (this) {
+            value = entries.get(id);
+        }
+        (value != null ? hits : misses).incrementAndGet();
+        return value;
+    }
+
+    // SET yolu: yeni değer her zaman eskisinin yerine geçer.
+    @Override
+    public void put(int id, String text) {
+        store(id, text, false);
+    }
+
+    // Okuma yolu (disk / uzak fetch): yalnızca girdi yoksa ekler. Böylece okunan eski bir değer,
+    // araya giren bir SET'in koyduğu yeni değerin üzerine yazılamaz.
+    @Override
+    public void fill(int id, String text) {
+        store(id, text, true);
+    }
+
+    private void store(int id, String text, boolean onlyIfAbsent) {
+        long weight = weightOf(text);
+        if (weight > maxBytes) {
+            if (!onlyIfAbsent) invalidate(id);
+            return;
+        }
+
+        synchronized (this) {
+            if (onlyIfAbsent && entries.containsKey(id)) return;
+            String previous = entries.put(id, text);
+            if (previous != null) usedBytes -= weightOf(previous);
+            usedBytes += weight;
+
+            Iterator<Map.Entry<Integer, String>> it = entries.entrySet().iterator();
+            while (usedBytes > maxBytes && it.hasNext()) {
+                Map.Entry<Integer, String> eldest = it.next();
+                usedBytes -= weightOf(eldest.getValue());
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(int id) {
+        String previous = entries.remove(id);
+        if (previous != null) usedBytes -= weightOf(previous);
+    }
+
+    @Override
+    public String stats() {
+        long h = hits.get();
+        long m = misses.get();
+        long total = h + m;
+        synchronized (this) {
+            return String.format("entries=%d, used=%.1f/%.1f MB, hits=%d, misses=%d (hit %.1f%%), evictions=%d",
+                    entries.size(), usedBytes / 1048576.0, maxBytes / 1048576.0,
+                    h, m, total == 0 ? 0.0 : 100.0 * h / total, evictions.get());
+        }
+    }
+
+    private static long weightOf(String text) {
+        return ENTRY_OVERHEAD + 2L * text.length();
+    }
+}
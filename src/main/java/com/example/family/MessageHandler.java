@@ -4,20 +4,35 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
 
 public class MessageHandler {
 
     private final String storageDir;
-    private final int saveMode; // 1: Buffered, 2: Unbuffered, 3: Zero-Copy (NIO)
+    private final int saveMode; // 1: Buffered, 2: Unbuffered, 3: Zero-Copy (NIO), 4: Segment Log
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+    private SegmentLog segmentLog; // yalnızca mod 4'te kullanılır
+    private final boolean mappedReads; // READ_MODE=MMAP: okumalar map'li segmentlerden yapılır
+    private GroupCommitter groupCommitter; // GROUP_COMMIT=true: batch başına tek fsync
 
     // Constructor artık saveMode alıyor
     public MessageHandler(int port, int saveMode) {
+        this(port, saveMode, false, 16);
+    }
+
+    public MessageHandler(int port, int saveMode, boolean mappedReads, int maxMappedSegments) {
         this.storageDir = "messages_" + port;
         this.saveMode = saveMode;
+        this.mappedReads = mappedReads && saveMode == 4;
+
+        if (mappedReads && saveMode != 4) {
+            System.out.println("READ_MODE=MMAP yalnızca Segment Log (mod 4) ile desteklenir, normal okuma kullanılacak.");
+        }
 
         try {
             Path path = Paths.get(storageDir);
@@ -28,9 +43,34 @@ public class MessageHandler {
         } catch (IOException e) {
             System.err.println("Failed to create storage directory: " + e.getMessage());
         }
+
+        if (saveMode == 4) {
+            try {
+                segmentLog = new SegmentLog(Paths.get(storageDir), SEGMENT_BYTES, maxMappedSegments);
+            } catch (IOException e) {
+                System.err.println("Segment log açılamadı, Buffered IO kullanılacak: " + e.getMessage());
+            }
+        }
+    }
+
+    // Segment log yazımlarını group commit'e alır: kayıtlar toplanıp batch başına tek
+    // FileChannel.force ile kalıcı yapılır. Dosya başına modlarda her dosya ayrı fsync
+    // isteyeceği için batch'leme kazanç sağlamaz; orada desteklenmez.
+    public void enableGroupCommit(int maxBatch, long maxWaitMicros) {
+        if (saveMode != 4 || segmentLog == null) {
+            System.out.println("GROUP_COMMIT yalnızca Segment Log (mod 4) ile desteklenir, yok sayılıyor.");
+            return;
+        }
+        groupCommitter = new GroupCommitter(segmentLog, maxBatch, maxWaitMicros);
+        System.out.printf("Group commit açık (batch <= %d, bekleme <= %dµs)%n", maxBatch, maxWaitMicros);
     }
 
     public void saveMessage(int id, String content) throws IOException {
+        if (saveMode == 4 && segmentLog != null) {
+            writeSegment(id, content);
+            return;
+        }
+
         File file = new File(storageDir, id + ".txt");
 
         long startTime = System.nanoTime(); // Performans ölçümü için (isteğe bağlı)
@@ -88,8 +128,27 @@ public class MessageHandler {
         }
     }
 
+    // YÖNTEM 4: Segment Log (Append-Only)
+    // Mesaj başına dosya açmak yerine aktif segmentin sonuna kayıt ekler (sıralı yazım).
+    private void writeSegment(int id, String content) throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.append(id, content.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        segmentLog.append(id, content.getBytes(StandardCharsets.UTF_8));
+    }
+
     // Okuma fonksiyonu aynı kalabilir (Okuma için de mod eklenebilir ama şu an yazma istendi)
     public String readMessage(int id) throws IOException {
+        if (saveMode == 4 && segmentLog != null) {
+            if (mappedReads) {
+                // Ara StringBuilder olmadan doğrudan map'li bölgeden çözülür
+                return StandardCharsets.UTF_8.decode(segmentLog.readMapped(id)).toString();
+            }
+            // Index'ten konumu bulup tek bir positioned read ile okur
+            return new String(segmentLog.read(id), StandardCharsets.UTF_8);
+        }
+
         File file = new File(storageDir, id + ".txt");
         if (!file.exists()) {
             throw new FileNotFoundException("Message " + id + " not found in " + storageDir);
@@ -103,4 +162,44 @@ public class MessageHandler {
         }
         return content.toString();
     }
-}
\ No newline at end of file
+
+    // Mesajın UTF-8 baytlarını döner. MMAP modunda bu, map'li segmentin salt okunur bir
+    // dilimidir; gRPC cevabına kopyalanmadan (UnsafeByteOperations) eklenebilir.
+    public ByteBuffer readMessageBytes(int id) throws IOException {
+        if (mappedReads && segmentLog != null) {
+            return segmentLog.readMapped(id);
+        }
+        if (saveMode == 4 && segmentLog != null) {
+            return ByteBuffer.wrap(segmentLog.read(id));
+        }
+        return ByteBuffer.wrap(readMessage(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Diskte kayıtlı tüm mesaj ID'lerini gezer (dosya modlarında ID.txt adlarından, segment log'da index'ten).
+    public void forEachStoredId(IntConsumer action) throws IOException {
+        if (saveMode == 4 && segmentLog != null) {
+            segmentLog.forEachId(action);
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(storageDir), "*.txt")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    action.accept(Integer.parseInt(name.substring(0, name.length() - 4)));
+                } catch (NumberFormatException ignored) {
+                    // ID.txt biçiminde olmayan dosya
+                }
+            }
+        }
+    }
+
+    // Zero-copy GET için mesajın diskteki bölgesi. Yalnızca Segment Log (mod 4) kayıtları
+    // değişmez olduğu için desteklenir; diğer modlarda null döner ve normal okuma kullanılır
+    // (mesaj başına dosyalar üzerine yazılırken yerinde truncate edilir).
+    public FileRegion localRegion(int id) throws IOException {
+        if (saveMode == 4 && segmentLog != null) {
+            return segmentLog.region(id);
+        }
+        return null;
+    }
+}
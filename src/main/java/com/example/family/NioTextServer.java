@@ -0,0 +1,296 @@
+package com.example.family;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Tek bir selector thread'i ile tüm istemci bağlantılarını yöneten metin sunucusu.
+// Boştaki bağlantılar thread tutmaz; gelen satırlar (disk ve gRPC işi bloklayabildiği için)
+// CommandPipeline'a toplu halde verilir. Bir bağlantının aynı anda tek bir batch'i işlenir,
+// batch'in tüm cevapları tek bir buffer olarak yazılır. Cevaplardan hızlı pipeline eden bir istemcinin
+// bekleyen satırları MAX_PENDING_LINES'ı aşınca OP_READ kapatılır (TCP penceresi istemciyi yavaşlatır),
+// kuyruk boşalınca yeniden açılır. Cevaplarını okumayan istemci için de aynısı yapılır: yazılmayı bekleyen
+// cevap baytları MAX_OUTGOING_BYTES'ı aşınca ne okunur ne yeni batch başlatılır, yazıldıkça devam edilir.
+// Satır sonu gelmeden MAX_LINE_BYTES'ı aşan satır bağlantıyı kapatır.
+public class NioTextServer {
+
+    private static final int READ_BUFFER_SIZE = 4096;
+    static final int MAX_PENDING_LINES = 4 * CommandPipeline.MAX_BATCH;
+    static final int MAX_LINE_BYTES = 1 << 20;
+    static final int MAX_OUTGOING_BYTES = 4 << 20;
+
+    private final int port;
+    private final int backlog;
+    private final int maxConnections;
+    private final CommandPipeline pipeline;
+
+    private final AtomicInteger openConnections = new AtomicInteger(0);
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE); // sadece selector thread'i kullanır
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+
+    public NioTextServer(int port, int backlog, int maxConnections, CommandPipeline pipeline) {
+        this.port = port;
+        this.backlog = backlog;
+        this.maxConnections = maxConnections;
+        this.pipeline = pipeline;
+    }
+
+    public int openConnections() {
+        return openConnections.get();
+    }
+
+    public void run() throws IOException {
+        selector = Selector.open();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port), backlog);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+
+            while (true) {
+                selector.select();
+
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accept(server);
+                        } else {
+                            if (key.isReadable()) read(key);
+                            if (key.isValid() && key.isWritable()) write(key);
+                        }
+                    } catch (IOException e) {
+                        close(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel client;
+        while ((client = server.accept()) != null) {
+            if (openConnections.get() >= maxConnections) {
+                // Limit aşıldı: kısa bir hata yazıp bağlantıyı kapat
+                try (SocketChannel rejected = client) {
+                    rejected.configureBlocking(false);
+                    rejected.write(ByteBuffer.wrap("ERROR TOO_MANY_CONNECTIONS\n".getBytes(StandardCharsets.UTF_8)));
+                } catch (IOException ignored) {
+                }
+                continue;
+            }
+
+            client.configureBlocking(false);
+            // Cevaplar zaten batch halinde yazılıyor; dosya bölgesinden sonraki '\n' Nagle'a takılmasın
+            client.socket().setTcpNoDelay(true);
+            client.register(selector, SelectionKey.OP_READ, new Connection());
+            openConnections.incrementAndGet();
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection conn = (Connection) key.attachment();
+
+        int n = channel.read(readBuffer);
+        if (n < 0) {
+            conn.inputClosed = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            closeIfFinished(key);
+            return;
+        }
+
+        readBuffer.flip();
+        while (readBuffer.hasRemaining()) {
+            byte b = readBuffer.get();
+            if (b == '\n') {
+                String line = conn.partialLine.toString(StandardCharsets.UTF_8).trim();
+                conn.partialLine.reset();
+                if (!line.isEmpty()) {
+                    conn.pendingLines.add(line);
+                }
+            } else {
+                conn.partialLine.write(b);
+            }
+        }
+        readBuffer.clear();
+
+        if (conn.partialLine.size() > MAX_LINE_BYTES) {
+            // Okumayı durdurmak burada işe yaramaz: satır ancak okumaya devam edilirse biter
+            rejectLine(key);
+            return;
+        }
+
+        dispatchNext(key);
+        updateReadInterest(key);
+    }
+
+    // Bekleyen satırlar ya da yazılmayı bekleyen cevaplar sınırın üstündeyken soketten okunmaz;
+    // cevaplar yazıldıkça yeniden açılır.
+    private void updateReadInterest(SelectionKey key) {
+        Connection conn = (Connection) key.attachment();
+        if (!key.isValid() || conn.inputClosed) return;
+        boolean paused = conn.pendingLines.size() >= MAX_PENDING_LINES || conn.outgoingBytes >= MAX_OUTGOING_BYTES;
+        int ops = key.interestOps();
+        key.interestOps(paused ? ops & ~SelectionKey.OP_READ : ops | SelectionKey.OP_READ);
+    }
+
+    private void rejectLine(SelectionKey key) {
+        Connection conn = (Connection) key.attachment();
+        conn.partialLine.reset();
+        conn.pendingLines.clear();
+        conn.inputClosed = true;
+        conn.lineTooLong = true;
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        if (!conn.busy) queueLineTooLong(key); // çalışan batch varsa hata onun cevaplarından sonra yazılır
+    }
+
+    private void queueLineTooLong(SelectionKey key) {
+        Connection conn = (Connection) key.attachment();
+        conn.lineTooLong = false;
+        conn.enqueue(ByteBuffer.wrap("ERROR LINE_TOO_LONG\n".getBytes(StandardCharsets.UTF_8)));
+        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+    }
+
+    // Bağlantıda çalışan batch yoksa bekleyen satırları pipeline'a verir (selector thread'inde çağrılır).
+    // Önceki cevaplar hâlâ yazılmayı bekliyorsa yeni batch başlatılmaz; write boşalttıkça çağırır.
+    private void dispatchNext(SelectionKey key) {
+        Connection conn = (Connection) key.attachment();
+        if (conn.busy || conn.pendingLines.isEmpty() || conn.outgoingBytes >= MAX_OUTGOING_BYTES) return;
+
+        List<String> batch = new ArrayList<>(Math.min(conn.pendingLines.size(), CommandPipeline.MAX_BATCH));
+        while (!conn.pendingLines.isEmpty() && batch.size() < CommandPipeline.MAX_BATCH) {
+            batch.add(conn.pendingLines.poll());
+        }
+        conn.busy = true;
+
+        pipeline.submit(batch).whenComplete((responses, error) -> {
+            // Ardışık metin cevapları tek buffer'da birleştirilir; dosya bölgeleri araya girer
+            List<Object> out = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            if (error != null) {
+                text.append("ERROR ").append(error.getMessage()).append('\n');
+            } else {
+                for (Reply response : responses) {
+                    if (response == null) continue;
+                    if (response.isFile()) {
+                        if (text.length() > 0) {
+                            out.add(ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8)));
+                            text.setLength(0);
+                        }
+                        out.add(response.file());
+                        text.append('\n');
+                    } else {
+                        text.append(response.text()).append('\n');
+                    }
+                }
+            }
+            if (text.length() > 0) {
+                out.add(ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+
+            selectorTasks.add(() -> {
+                conn.busy = false;
+                if (!key.isValid()) return;
+                if (!out.isEmpty()) {
+                    out.forEach(conn::enqueue);
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+                if (conn.lineTooLong) queueLineTooLong(key);
+                dispatchNext(key);
+                updateReadInterest(key);
+                closeIfFinished(key);
+            });
+            selector.wakeup();
+        });
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection conn = (Connection) key.attachment();
+
+        boolean drained = true;
+        while (!conn.outgoing.isEmpty()) {
+            Object next = conn.outgoing.peek();
+            if (next instanceof FileRegion) {
+                if (!((FileRegion) next).transferSome(channel)) { // soket dolu
+                    drained = false;
+                    break;
+                }
+            } else {
+                ByteBuffer buffer = (ByteBuffer) next;
+                channel.write(buffer);
+                if (buffer.hasRemaining()) { // soket dolu, OP_WRITE ile tekrar gelinecek
+                    drained = false;
+                    break;
+                }
+                conn.outgoingBytes -= buffer.capacity();
+            }
+            conn.outgoing.poll();
+        }
+
+        // Cevaplar sınırın altına indiyse bekletilen batch ve okuma devam eder
+        dispatchNext(key);
+        updateReadInterest(key);
+        if (!drained) return;
+
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        closeIfFinished(key);
+    }
+
+    private void closeIfFinished(SelectionKey key) {
+        Connection conn = (Connection) key.attachment();
+        if (conn.inputClosed && !conn.busy && conn.pendingLines.isEmpty() && conn.outgoing.isEmpty()) {
+            close(key);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        if (!key.isValid()) return;
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+        openConnections.decrementAndGet();
+    }
+
+    // Bağlantı başına durum; yalnızca selector thread'i tarafından değiştirilir.
+    private static class Connection {
+        final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        final Queue<String> pendingLines = new ArrayDeque<>();
+        final Queue<Object> outgoing = new ArrayDeque<>(); // ByteBuffer ya da FileRegion
+        long outgoingBytes; // outgoing'deki heap buffer'larının boyu; dosya bölgeleri heap'te yer tutmaz
+        boolean busy;
+        boolean inputClosed;
+        boolean lineTooLong;
+
+        void enqueue(Object response) {
+            outgoing.add(response);
+            if (response instanceof ByteBuffer) outgoingBytes += ((ByteBuffer) response).capacity();
+        }
+    }
+}
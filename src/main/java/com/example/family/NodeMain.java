@@ -2,13 +2,20 @@ package com.example.family;
 
 import family.*;
 
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.ConnectivityState;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
 
 import java.io.*;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 
 
 import java.net.ServerSocket;
@@ -20,16 +27,80 @@ public class NodeMain {
 
     private static final int START_PORT = 5555;
     private static final int PRINT_INTERVAL_SECONDS = 10;
-    private static final ConcurrentHashMap<Integer, List<NodeInfo>> messageLocationMap = new ConcurrentHashMap<>();
+    private static final long REPLICA_DEADLINE_MS = 2000;
+    // Mesaj ID -> tutan düğümlerin slot numaraları (NodeRegistry.slotOf); boxing'siz ilkel indeks.
+    private static final LocationIndex locationIndex = new LocationIndex();
+    private static NodeRegistry familyRegistry;
+    private static LocationLog locationLog;
+    private static long LOCATION_FLUSH_MS = 20;
+    private static boolean LOCATION_DURABLE_ACK = false;
+    private static long LOCATION_COMPACT_RECORDS = 100_000; // 0: sıkıştırma kapalı
+    private static String LOCATION_RECOVERY = "EAGER"; // EAGER, LAZY
+    private static long LOCATION_SNAPSHOT_INTERVAL_SEC = 300; // 0: yalnızca kayıt sayısına göre
+    private static long RING_FALLBACK_SEC = 300; // 0: haritada olmayan ID için halkaya hiç sorulmaz
+    // Bu ana kadar (System.nanoTime) haritada olmayan ID'ler halkadan aranır; 0: hiç aranmaz
+    private static volatile long ringFallbackUntilNanos = 0;
+    private static List<NodeInfo> restoredMembers = List.of();
+    // port -> slot + 1; kurtarmada her kayıt için NodeInfo üretmemek için
+    private static final int[] portSlots = new int[65536];
+    private static int RECOVERY_THREADS = Runtime.getRuntime().availableProcessors();
     private static final java.util.concurrent.atomic.AtomicInteger roundRobinCounter = new java.util.concurrent.atomic.AtomicInteger(0);
 
     private static MessageHandler diskHandler;
+    private static final java.util.concurrent.atomic.AtomicInteger backgroundReplications = new java.util.concurrent.atomic.AtomicInteger(0);
+    // Konum girdisini en son yazan ve hâlâ arka planda replika bekleyen round; yalnızca o round girdiyi genişletebilir
+    private static final ConcurrentHashMap<Integer, ReplicationRound> pendingRounds = new ConcurrentHashMap<>();
+    // Bir ID'nin konum güncellemeleri (harita, anti-entropy, günlük) bu kilitlerden biri altında sırayla yapılır
+    private static final Object[] locationLocks = new Object[64];
+    static {
+        for (int i = 0; i < locationLocks.length; i++) locationLocks[i] = new Object();
+    }
     private static int TOLERANCE = 1;
+    private static int WRITE_QUORUM = -1; // -1: TOLERANCE kadar onay bekle
+    private static final java.util.concurrent.atomic.AtomicInteger openConnections = new java.util.concurrent.atomic.AtomicInteger(0);
+    private static String SERVER_MODE = "THREAD"; // THREAD, NIO, VIRTUAL
+    private static int MAX_CONNECTIONS = 10_000;
+    private static int ACCEPT_BACKLOG = 1024;
+    private static int WORKER_THREADS = 32;
+    private static CommandPipeline commandPipeline;
+    private static long HEALTH_INTERVAL_MS = 2000;
+    private static long HEALTH_TIMEOUT_MS = 1000;
+    private static int HEALTH_MAX_FAILURES = 3; // art arda bu kadar başarısız yoklamada üye çıkarılır
+    private static HealthChecker healthChecker;
+    private static int REPAIR_CONCURRENCY = 16; // aynı anda yoldaki onarım kopyası
+    private static long REPAIR_MAX_BYTES_PER_SEC = 0; // 0: sınırsız
+    private static RepairService repairService;
+    private static long ANTI_ENTROPY_INTERVAL_SEC = 30; // 0: kapalı
+    private static int MERKLE_DEPTH = 12; // 2^12 yaprak; lider ve üyelerde aynı olmalı
+    private static AntiEntropy antiEntropy;
+    private static int HEDGE_PERCENTILE = 95; // 0: hedge kapalı
+    private static long HEDGE_INITIAL_DELAY_MS = 10;
+    private static long HEDGE_MIN_DELAY_MS = 1;
+    private static HedgedReader hedgedReader;
+    private static final ReadLoadTracker readLoads = new ReadLoadTracker(NodeMain::isSuspected);
+    private static int ADMISSION_CAPACITY = 4096; // 0: sınırsız
+    private static String ADMISSION_POLICY = "BUSY"; // BUSY, BLOCK
+    private static int MAX_PENDING_PER_MEMBER = 1024;
+    private static StreamingReplicator replicator;
+    private static String READ_MODE = "STREAM"; // STREAM, MMAP (yalnızca segment log)
+    private static int MAPPED_SEGMENTS = 16;
+    private static boolean ZERO_COPY_GET = false;
+    private static boolean GROUP_COMMIT = false;
+    private static int GROUP_COMMIT_MAX_BATCH = 256;
+    private static long GROUP_COMMIT_MAX_WAIT_US = 500;
+    private static int CACHE_MAX_MB = 0; // 0: önbellek kapalı
+    private static String CACHE_MODE = "HEAP"; // HEAP, OFFHEAP
+    private static ReadCache messageCache;
     private static int SAVE_MODE = 1; // Varsayılan: Buffered
+    private static String LOCAL_WRITE = "SYNC"; // SYNC, CONCURRENT, BEHIND
+    private static String PLACEMENT = "RING"; // RING, ROUND_ROBIN
+    private static int RING_VNODES = 128;
+    private static int LOCAL_WRITE_THREADS = 4;
+    private static LocalWriter localWriter;
 
     public static void main(String[] args) throws Exception {
         loadToleranceConfig();
-        loadMessageMap();
+        loadSaveConfig();
         String host = "127.0.0.1";
         int port = findFreePort();
 
@@ -39,8 +110,35 @@ public class NodeMain {
                 .build();
 
         NodeRegistry registry = new NodeRegistry();
-        diskHandler = new MessageHandler(port, SAVE_MODE);
-        FamilyServiceImpl service = new FamilyServiceImpl(registry, self, SAVE_MODE);
+        familyRegistry = registry;
+        if (port == START_PORT) {
+            // Konum günlüğünü yalnızca lider tutar
+            openLocationLog();
+        }
+        replicator = new StreamingReplicator(registry.channels(), REPLICA_DEADLINE_MS, MAX_PENDING_PER_MEMBER);
+        registry.onRemove(replicator::remove);
+        registry.onRemove(readLoads::remove);
+        diskHandler = new MessageHandler(port, SAVE_MODE, "MMAP".equals(READ_MODE), MAPPED_SEGMENTS);
+        if (GROUP_COMMIT) {
+            diskHandler.enableGroupCommit(GROUP_COMMIT_MAX_BATCH, GROUP_COMMIT_MAX_WAIT_US);
+        }
+        if (CACHE_MAX_MB > 0) {
+            long cacheBytes = CACHE_MAX_MB * 1024L * 1024L;
+            // OFFHEAP: gövdeler direct ByteBuffer slab'larında (-XX:MaxDirectMemorySize'a dikkat)
+            messageCache = "OFFHEAP".equals(CACHE_MODE) ? new OffHeapCache(cacheBytes) : new MessageCache(cacheBytes);
+        }
+        if (!"SYNC".equals(LOCAL_WRITE)) {
+            localWriter = new LocalWriter(diskHandler, LOCAL_WRITE_THREADS);
+        }
+        // Üyeler diskteki mesajların Merkle ağacını tutar; lider her üye için beklenen ağacı tutar
+        boolean merkle = port != START_PORT && ANTI_ENTROPY_INTERVAL_SEC > 0;
+        FamilyServiceImpl service = new FamilyServiceImpl(registry, self, diskHandler, messageCache,
+                merkle ? new MerkleTree(MERKLE_DEPTH) : null);
+        if (merkle) {
+            Thread indexer = new Thread(service::indexStoredMessages, "MerkleIndexer");
+            indexer.setDaemon(true);
+            indexer.start();
+        }
 
         Server server = ServerBuilder
                 .forPort(port)
@@ -53,9 +151,12 @@ public class NodeMain {
                 // Eğer bu ilk node ise (port 5555), TCP 6666'da text dinlesin
                 if (port == START_PORT) {
                     startLeaderTextListener(registry, self, diskHandler);
+                    startRepairService(registry, self);
+                    startAntiEntropy(registry, self);
                 }
 
                 discoverExistingNodes(host, port, registry, self);
+                rejoinRestoredMembers(registry, self);
                 startFamilyPrinter(registry, self);
                 startHealthChecker(registry, self);
 
@@ -65,166 +166,454 @@ public class NodeMain {
     private static void startLeaderTextListener(NodeRegistry registry, NodeInfo self, MessageHandler messageHandler) {
 
     new Thread(() -> {
-        try (ServerSocket serverSocket = new ServerSocket(6666)) {
-            System.out.printf("Leader listening for text on TCP %s:%d%n",
-                    self.getHost(), 6666);
-
-            while (true) {
-                Socket client = serverSocket.accept();
-                new Thread(() -> handleClientTextConnection(client, registry, self)).start();
+        System.out.printf("Leader listening for text on TCP %s:%d (mode: %s, max connections: %d)%n",
+                self.getHost(), 6666, SERVER_MODE, MAX_CONNECTIONS);
+
+        try {
+            switch (SERVER_MODE) {
+                case "NIO":
+                    runNioListener(registry, self);
+                    break;
+                case "VIRTUAL":
+                    ExecutorService virtual = newVirtualThreadExecutor();
+                    if (virtual == null) {
+                        System.out.println("Virtual thread desteklenmiyor (JDK 21 gerekli), NIO moduna geçiliyor.");
+                        runNioListener(registry, self);
+                    } else {
+                        runBlockingListener(registry, self, virtual::execute);
+                    }
+                    break;
+                default:
+                    runBlockingListener(registry, self, task -> new Thread(task).start());
             }
-
         } catch (IOException e) {
             System.err.println("Error in leader text listener: " + e.getMessage());
         }
     }, "LeaderTextListener").start();
 }
 
-    private static void handleClientTextConnection(Socket client, NodeRegistry registry, NodeInfo self) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream()));
-             PrintWriter out = new PrintWriter(client.getOutputStream(), true)) {
+    // THREAD ve VIRTUAL modları: bağlantı başına bir (platform ya da sanal) thread.
+    private static void runBlockingListener(NodeRegistry registry, NodeInfo self, Executor connectionExecutor) throws IOException {
+        // Zero-copy GET için SocketChannel gerektiğinden ServerSocketChannel (blocking) kullanılır
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(6666), ACCEPT_BACKLOG);
+            while (true) {
+                SocketChannel client = serverChannel.accept();
+
+                if (openConnections.incrementAndGet() > MAX_CONNECTIONS) {
+                    openConnections.decrementAndGet();
+                    try (SocketChannel rejected = client) {
+                        rejected.write(ByteBuffer.wrap("ERROR TOO_MANY_CONNECTIONS\n".getBytes(StandardCharsets.UTF_8)));
+                    } catch (IOException ignored) {
+                    }
+                    continue;
+                }
+
+                // Cevaplar zaten batch halinde yazılıyor; dosya bölgesinden sonraki '\n' Nagle'a takılmasın
+                client.socket().setTcpNoDelay(true);
+
+                connectionExecutor.execute(() -> {
+                    try {
+                        handleClientTextConnection(client, registry, self);
+                    } finally {
+                        openConnections.decrementAndGet();
+                    }
+                });
+            }
+        }
+    }
+
+    // NIO modu: tek selector thread'i + sabit boyutlu worker havuzu.
+    private static void runNioListener(NodeRegistry registry, NodeInfo self) throws IOException {
+        new NioTextServer(6666, ACCEPT_BACKLOG, MAX_CONNECTIONS, commandPipeline(registry, self)).run();
+    }
+
+    // Tüm bağlantıların paylaştığı komut havuzu; ilk ihtiyaçta oluşturulur.
+    private static synchronized CommandPipeline commandPipeline(NodeRegistry registry, NodeInfo self) {
+        if (commandPipeline == null) {
+            AdmissionControl admission = ADMISSION_CAPACITY > 0
+                    ? new AdmissionControl(ADMISSION_CAPACITY, "BLOCK".equals(ADMISSION_POLICY))
+                    : null;
+            commandPipeline = new CommandPipeline(line -> processCommand(line, registry, self),
+                    Executors.newFixedThreadPool(WORKER_THREADS), admission);
+        }
+        return commandPipeline;
+    }
+
+    // JDK 21+ varsa Executors.newVirtualThreadPerTaskExecutor(), yoksa null.
+    // Proje JDK 17 ile derlendiği için reflection ile çağrılıyor.
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static void handleClientTextConnection(SocketChannel client, NodeRegistry registry, NodeInfo self) {
+        CommandPipeline pipeline = commandPipeline(registry, self);
+
+        try (SocketChannel channel = client;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(client.socket().getInputStream(), StandardCharsets.UTF_8))) {
 
             String line;
             while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                System.out.println("Command: " + line);
+                // Tamponda hazır bekleyen (pipeline edilmiş) satırları da aynı batch'e al
+                List<String> batch = new java.util.ArrayList<>();
+                batch.add(line);
+                while (batch.size() < CommandPipeline.MAX_BATCH && reader.ready()
+                        && (line = reader.readLine()) != null) {
+                    batch.add(line);
+                }
 
-                String[] parts = line.split("\\s+", 3);
-                if (parts.length < 2) { out.println("ERROR"); continue; }
+                // Batch başına tek yazma; dosya bölgeleri araya transferTo ile girer
+                StringBuilder out = new StringBuilder();
+                // Bağlantı başına thread olduğundan BLOCK politikasında burada beklenebilir;
+                // beklerken soketten okunmaz ve TCP istemciyi yavaşlatır
+                for (Reply response : pipeline.submit(batch, true).join()) {
+                    if (response == null) continue;
+                    if (response.isFile()) {
+                        writeText(channel, out);
+                        response.file().transferAll(channel);
+                        out.append('\n');
+                    } else {
+                        out.append(response.text()).append('\n');
+                    }
+                }
+                writeText(channel, out);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-                String cmd = parts[0].toUpperCase();
-                try {
-                    int id = Integer.parseInt(parts[1]);
+    private static void writeText(SocketChannel channel, StringBuilder text) throws IOException {
+        if (text.length() == 0) return;
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        text.setLength(0);
+    }
 
-                    if ("SET".equals(cmd) && parts.length == 3) {
-                        String content = parts[2];
+    // Tek bir metin komutunu işler ve istemciye yazılacak cevabı döner (cevap yoksa null).
+    private static Reply processCommand(String line, NodeRegistry registry, NodeInfo self) {
+        line = line.trim();
+        if (line.isEmpty()) return null;
+        System.out.println("Command: " + line);
+
+        String[] parts = line.split("\\s+", 3);
+        if (parts.length < 2) return Reply.text("ERROR");
+
+        String cmd = parts[0].toUpperCase();
+        try {
+            if ("MSET".equals(cmd)) {
+                return Reply.text(handleMultiSet(line.substring(parts[0].length()).trim(), registry, self));
+            } else if ("MGET".equals(cmd)) {
+                return Reply.text(handleMultiGet(line.substring(parts[0].length()).trim(), registry, self));
+            }
 
-                        // A. Lider Kaydeder
-                        diskHandler.saveMessage(id, content);
+            int id = Integer.parseInt(parts[1]);
 
-                        // B. Dağıtır
-                        List<NodeInfo> confirmedNodes = replicateToMembers(id, content, registry, self);
+            if ("SET".equals(cmd) && parts.length == 3) {
+                String content = parts[2];
 
-                        // C. Haritayı Güncelle
-                        List<NodeInfo> allHolders = new java.util.ArrayList<>();
-                        allHolders.add(self);
-                        allHolders.addAll(confirmedNodes);
-                        messageLocationMap.put(id, allHolders);
+                // A. Lider Kaydeder (eski değer önbellekten düşülür, yeni değer yazımdan sonra konur)
+                // SYNC dışındaki modlarda yerel yazım başlatılır ve replikasyonla eşzamanlı ilerler
+                cacheInvalidate(id);
+                CompletableFuture<Void> localWrite = saveLocal(id, content);
+                cachePut(id, content);
 
-                        // --- EKLENEN KISIM BAŞLANGIÇ ---
-                        // D. Log Dosyasına Yaz (Kalıcılık için şart!)
-                        // Sadece replika yapılanları yazıyoruz, lider zaten belli.
-                        writeMessageMap(id, confirmedNodes);
-                        // --- EKLENEN KISIM BİTİŞ ---
+                // B. Dağıtır, WRITE_QUORUM kadar onay gelince devam eder
+                ReplicationRound round = replicateToMembers(id, content, registry, self);
+                List<NodeInfo> confirmedNodes = round.awaitQuorum(REPLICA_DEADLINE_MS, TimeUnit.MILLISECONDS);
+                awaitLocal(localWrite);
 
-                        if (confirmedNodes.size() < Math.min(TOLERANCE, registry.snapshot().size() - 1)) {
-                            System.out.println("⚠️ Warning: Desired tolerance not met.");
-                        }
+                // C. Haritayı Güncelle + D. Log Dosyasına Yaz
+                long locationSeq = recordLocation(id, self, confirmedNodes, content, round);
+                awaitLocationDurable(locationSeq);
 
-                        out.println("OK");
-                    } else if ("GET".equals(cmd)) {
-                        String result = null;
-
-                        // A. Önce Lider Kendine Bakar
-                        try {
-                            result = diskHandler.readMessage(id);
-                            System.out.println("   -> Found locally.");
-                        } catch (IOException e) {
-                            // Liderde yok veya dosya silinmiş
-                            System.out.println("   -> Not found locally, checking network...");
-                        }
+                if (confirmedNodes.size() < round.required()) {
+                    System.out.println("⚠️ Warning: Desired tolerance not met.");
+                }
 
-                        // B. Liderde Yoksa Üyelere Bak
-                        if (result == null) {
-                            result = fetchFromMembers(id, self);
-                        }
+                // E. Kalan replikalar arka planda tamamlanınca haritayı genişlet
+                trackRemainingReplicas(id, self, round, confirmedNodes, content);
+
+                return Reply.text("OK");
+            } else if ("GET".equals(cmd)) {
+                // 0. Önbellekte ya da henüz diske inmemiş yazımlarda varsa disk ve ağa hiç gidilmez
+                String result = cacheGet(id);
+                if (result == null) result = pendingLocal(id);
+                if (result != null) {
+                    System.out.println("   -> Found in cache.");
+                    return Reply.text(result);
+                }
 
-                        if (result != null) {
-                            out.println(result);
-                        } else {
-                            out.println("NOT_FOUND");
+                // A. Önce Lider Kendine Bakar
+                try {
+                    if (ZERO_COPY_GET) {
+                        // Yerel kayıt doğrudan dosyadan sokete (transferTo) gönderilir
+                        FileRegion region = diskHandler.localRegion(id);
+                        if (region != null) {
+                            System.out.println("   -> Found locally (zero-copy).");
+                            return Reply.file(region);
                         }
                     }
+                    result = diskHandler.readMessage(id);
+                    cacheFill(id, result);
+                    System.out.println("   -> Found locally.");
+                } catch (IOException e) {
+                    // Liderde yok veya dosya silinmiş
+                    System.out.println("   -> Not found locally, checking network...");
+                }
 
-                } catch (Exception e) {
-                    out.println("ERROR " + e.getMessage());
+                // B. Liderde Yoksa Üyelere Bak
+                if (result == null) {
+                    result = fetchFromMembers(id, registry, self);
                 }
+
+                return Reply.text(result != null ? result : "NOT_FOUND");
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+
+        } catch (Exception e) {
+            return Reply.text("ERROR " + e.getMessage());
         }
+        return null;
     }
 
-    private static void discoverExistingNodes(String host, int selfPort, NodeRegistry registry, NodeInfo self) {
+    // MSET <id> <text> | <id> <text> | ...
+    // Mesajlar önce liderde saklanır, sonra her üyeye tek bir StoreBatch RPC'si ile gönderilir.
+    private static String handleMultiSet(String args, NodeRegistry registry, NodeInfo self) throws IOException {
+        java.util.Map<Integer, String> entries = new java.util.LinkedHashMap<>();
+        for (String entry : args.split("\\|")) {
+            String[] kv = entry.trim().split("\\s+", 2);
+            if (kv.length < 2) return "ERROR";
+            entries.put(Integer.parseInt(kv[0]), kv[1]);
+        }
 
-        for (int port = START_PORT; port < selfPort; port++) {
-            ManagedChannel channel = null;
+        List<StoredMessage> messages = new java.util.ArrayList<>();
+        List<CompletableFuture<Void>> localWrites = new java.util.ArrayList<>();
+        for (java.util.Map.Entry<Integer, String> e : entries.entrySet()) {
+            cacheInvalidate(e.getKey());
+            localWrites.add(saveLocal(e.getKey(), e.getValue()));
+            cachePut(e.getKey(), e.getValue());
+            messages.add(StoredMessage.newBuilder().setId(e.getKey()).setText(e.getValue()).build());
+        }
+
+        java.util.Map<Integer, ReplicationRound> rounds = replicateBatchToMembers(messages, registry, self);
+
+        int underReplicated = 0;
+        long locationSeq = 0;
+        for (java.util.Map.Entry<Integer, ReplicationRound> e : rounds.entrySet()) {
+            ReplicationRound round = e.getValue();
+            List<NodeInfo> confirmedNodes = round.awaitQuorum(REPLICA_DEADLINE_MS, TimeUnit.MILLISECONDS);
+            String content = entries.get(e.getKey());
+            locationSeq = Math.max(locationSeq, recordLocation(e.getKey(), self, confirmedNodes, content, round));
+            if (confirmedNodes.size() < round.required()) underReplicated++;
+            trackRemainingReplicas(e.getKey(), self, round, confirmedNodes, content);
+        }
+
+        if (underReplicated > 0) {
+            System.out.println("⚠️ Warning: Desired tolerance not met for " + underReplicated + " message(s).");
+        }
+        for (CompletableFuture<Void> localWrite : localWrites) {
+            awaitLocal(localWrite);
+        }
+        awaitLocationDurable(locationSeq);
+        return "OK";
+    }
+
+    // MGET <id> <id> ...  ->  her ID için bir satır: "<id> <text>" ya da "<id> NOT_FOUND"
+    // Liderde olmayanlar, ilk sahiplerine göre gruplanıp üye başına tek RetrieveBatch ile istenir.
+    private static String handleMultiGet(String args, NodeRegistry registry, NodeInfo self) {
+        java.util.Map<Integer, String> results = new java.util.LinkedHashMap<>();
+        java.util.Map<NodeInfo, MessageIdBatch.Builder> remote = new java.util.LinkedHashMap<>();
+
+        for (String token : args.split("\\s+")) {
+            int id = Integer.parseInt(token);
+            if (results.containsKey(id)) continue;
+
+            String local = cacheGet(id);
+            if (local == null) local = pendingLocal(id);
+            if (local == null) {
+                try {
+                    local = diskHandler.readMessage(id);
+                    cacheFill(id, local);
+                } catch (IOException ignored) {
+                }
+            }
+            results.put(id, local);
+
+            if (local == null) {
+                NodeInfo holder = firstRemoteHolder(id, self);
+                if (holder != null) {
+                    remote.computeIfAbsent(holder, h -> MessageIdBatch.newBuilder()).addIds(id);
+                }
+            }
+        }
+
+        List<ListenableFuture<StoredMessageBatch>> calls = new java.util.ArrayList<>();
+        for (java.util.Map.Entry<NodeInfo, MessageIdBatch.Builder> e : remote.entrySet()) {
+            calls.add(trackedRetrieveBatch(registry, e.getKey(), e.getValue().build()));
+        }
+        for (ListenableFuture<StoredMessageBatch> call : calls) {
             try {
-                channel = ManagedChannelBuilder
-                        .forAddress(host, port)
-                        .usePlaintext()
-                        .build();
+                for (StoredMessage m : call.get().getMessagesList()) {
+                    results.put(m.getId(), m.getText());
+                    cacheFill(m.getId(), m.getText());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("   --> RetrieveBatch hatası: " + e.getCause().getMessage());
+            }
+        }
+
+        StringBuilder response = new StringBuilder();
+        for (java.util.Map.Entry<Integer, String> e : results.entrySet()) {
+            String text = e.getValue();
+            // Toplu istekte gelmeyenler için tek tek diğer sahipleri dene (failover)
+            if (text == null) {
+                text = fetchFromMembers(e.getKey(), registry, self);
+            }
+            if (response.length() > 0) response.append('\n');
+            response.append(e.getKey()).append(' ').append(text != null ? text : "NOT_FOUND");
+        }
+        return response.toString();
+    }
 
-                FamilyServiceGrpc.FamilyServiceBlockingStub stub =
-                        FamilyServiceGrpc.newBlockingStub(channel);
+    // Toplu okuma da üyenin yük ölçümüne girer; aksi halde MGET trafiği P2C seçiminde görünmez,
+    // MGET altında boğulan üye tekli GET'ler için boşta sanılırdı.
+    private static ListenableFuture<StoredMessageBatch> trackedRetrieveBatch(NodeRegistry registry, NodeInfo target,
+                                                                            MessageIdBatch request) {
+        long started = System.nanoTime();
+        readLoads.started(target);
+        ListenableFuture<StoredMessageBatch> call = registry.channels().futureStub(target)
+                .withDeadlineAfter(REPLICA_DEADLINE_MS, TimeUnit.MILLISECONDS)
+                .retrieveBatch(request);
+        Futures.addCallback(call, new FutureCallback<StoredMessageBatch>() {
+            @Override
+            public void onSuccess(StoredMessageBatch response) {
+                readLoads.finished(target, System.nanoTime() - started);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // HedgedReader'daki gibi: hata deadline kadar yavaş sayılır
+                long latency = System.nanoTime() - started;
+                readLoads.finished(target, Math.max(latency, TimeUnit.MILLISECONDS.toNanos(REPLICA_DEADLINE_MS)));
+            }
+        }, MoreExecutors.directExecutor());
+        return call;
+    }
+
+    private static NodeInfo firstRemoteHolder(int msgId, NodeInfo self) {
+        long packed = locationOf(msgId);
+        int count = locationIndex.holderCount(msgId, packed);
+        List<NodeInfo> remote = new java.util.ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            NodeInfo n = familyRegistry.nodeAt(locationIndex.holderSlot(msgId, packed, i));
+            if (n.getPort() != self.getPort() && familyRegistry.contains(n)) remote.add(n);
+        }
+        return readLoads.choose(remote);
+    }
 
-                FamilyView view = stub.join(self);
+    private static void discoverExistingNodes(String host, int selfPort, NodeRegistry registry, NodeInfo self) {
+
+        ChannelPool channels = registry.channels();
+
+        for (int port = START_PORT; port < selfPort; port++) {
+            NodeInfo candidate = NodeInfo.newBuilder()
+                    .setHost(host)
+                    .setPort(port)
+                    .build();
+            try {
+                FamilyView view = channels.candidateBlockingStub(candidate).join(self);
                 registry.addAll(view.getMembersList());
 
                 System.out.printf("Joined through %s:%d, family size now: %d%n",
                         host, port, registry.snapshot().size());
 
             } catch (Exception ignored) {
-            } finally {
-                if (channel != null) channel.shutdownNow();
+                // Ulaşılamayan aday için açılan kanal havuzda kalmasın
+                if (!registry.snapshot().contains(candidate)) {
+                    channels.evict(candidate);
+                }
             }
         }
     }
 
-    private static void startHealthChecker(NodeRegistry registry, NodeInfo self) {
-
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-
-        scheduler.scheduleAtFixedRate(() -> {
-            List<NodeInfo> members = registry.snapshot();
+    private static boolean isSuspected(NodeInfo node) {
+        HealthChecker checker = healthChecker;
+        return checker != null && checker.isSuspected(node);
+    }
 
-            for (NodeInfo n : members) {
-                if (n.getPort() == self.getPort()) {
-                    continue;
-                }
+    private static void startHealthChecker(NodeRegistry registry, NodeInfo self) {
+        healthChecker = new HealthChecker(registry, self, HEALTH_INTERVAL_MS, HEALTH_TIMEOUT_MS, HEALTH_MAX_FAILURES);
+        healthChecker.start();
+    }
 
-                ManagedChannel channel = null;
+    // Sağlık kontrolü bir üyeyi çıkarınca onun tuttuğu mesajlar başka üyelere kopyalanır.
+    private static void startRepairService(NodeRegistry registry, NodeInfo self) {
+        RepairService.Copies copies = new RepairService.Copies() {
+            @Override
+            public String read(int id, List<NodeInfo> holders) {
+                String text = readLocalCopy(id);
+                if (text != null || holders.isEmpty()) return text;
                 try {
-                    channel = ManagedChannelBuilder
-                            .forAddress(n.getHost(), n.getPort())
-                            .usePlaintext()
-                            .build();
-
-                    FamilyServiceGrpc.FamilyServiceBlockingStub stub =
-                            FamilyServiceGrpc.newBlockingStub(channel);
-
-                    stub.getFamily(Empty.newBuilder().build());
-
-                } catch (Exception e) {
-                    System.out.printf("Node %s:%d yanıt vermiyor, aileden çıkarılıyor...%n",
-                            n.getHost(), n.getPort());
+                    return hedgedReader(registry).read(id, holders);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
 
-                    registry.remove(n);
+            @Override
+            public List<NodeInfo> placement(int id) {
+                List<NodeInfo> candidates = replicaCandidates(registry);
+                return selectReplicas(id, candidates, candidates.size(), registry, self);
+            }
 
-                } finally {
-                    if (channel != null) {
-                        channel.shutdownNow();
-                    }
+            @Override
+            public boolean recordIfUnchanged(int id, long expected, List<NodeInfo> replicas, String content) {
+                synchronized (locationLock(id)) {
+                    if (locationIndex.get(id) != expected) return false;
+                    recordLocation(id, self, replicas, content, null);
+                    return true;
                 }
             }
+        };
 
-        }, 5, 10, TimeUnit.SECONDS);
+        CompletableFuture<?> ready = locationLog != null ? locationLog.recovered() : CompletableFuture.completedFuture(null);
+        repairService = new RepairService(registry, locationIndex, self, copies, TOLERANCE, REPLICA_DEADLINE_MS,
+                ready, REPAIR_CONCURRENCY, REPAIR_MAX_BYTES_PER_SEC);
+        registry.onRemove(repairService::memberRemoved);
     }
 
-    private static List<NodeInfo> replicateToMembers(int msgId, String content, NodeRegistry registry, NodeInfo self) {
-        List<NodeInfo> successNodes = new java.util.ArrayList<>();
+    // Liderin yerel kopyasını önbellek, bekleyen yazım ve disk sırasıyla arar; yoksa null.
+    private static String readLocalCopy(int id) {
+        String text = cacheGet(id);
+        if (text == null) text = pendingLocal(id);
+        if (text == null) {
+            try {
+                text = diskHandler.readMessage(id);
+            } catch (IOException ignored) {
+            }
+        }
+        return text;
+    }
+
+    private static void startAntiEntropy(NodeRegistry registry, NodeInfo self) {
+        if (ANTI_ENTROPY_INTERVAL_SEC <= 0) return;
+        CompletableFuture<?> ready = locationLog != null ? locationLog.recovered() : CompletableFuture.completedFuture(null);
+        antiEntropy = new AntiEntropy(registry, locationIndex, self, NodeMain::readLocalCopy, MERKLE_DEPTH,
+                ANTI_ENTROPY_INTERVAL_SEC * 1000, REPLICA_DEADLINE_MS, ready);
+        registry.onRemove(antiEntropy::memberRemoved);
+        antiEntropy.start();
+    }
 
+    private static List<NodeInfo> replicaCandidates(NodeRegistry registry) {
         List<NodeInfo> allMembers = registry.snapshot();
 
         List<NodeInfo> candidates = new java.util.ArrayList<>();
@@ -233,88 +622,455 @@ public class NodeMain {
                 candidates.add(n);
             }
         }
+        return candidates;
+    }
+
+    private static ReplicationRound replicateToMembers(int msgId, String content, NodeRegistry registry, NodeInfo self) {
+        List<NodeInfo> candidates = replicaCandidates(registry);
 
         int targetCount = Math.min(TOLERANCE, candidates.size());
 
-        List<NodeInfo> targets = selectNodesRoundRobin(candidates, TOLERANCE);
+        List<NodeInfo> targets = selectReplicas(msgId, candidates, targetCount, registry, self);
+        int quorum = WRITE_QUORUM < 0 ? targetCount : WRITE_QUORUM;
+        ReplicationRound round = new ReplicationRound(targets.size(), quorum);
+
+        family.StoredMessage msg = family.StoredMessage.newBuilder()
+                .setId(msgId)
+                .setText(content)
+                .build();
 
+        // Tüm hedeflere aynı anda gönder; gecikme toplam değil en yavaş replika kadar olur.
+        // Aynı üyeye bekleyen birden fazla yazma varsa replicator bunları tek stream'de yollar.
         for (NodeInfo target : targets) {
-            ManagedChannel channel = null;
-            try {
-                channel = ManagedChannelBuilder.forAddress(target.getHost(), target.getPort())
-                        .usePlaintext().build();
-                FamilyServiceGrpc.FamilyServiceBlockingStub stub = FamilyServiceGrpc.newBlockingStub(channel);
-
-                family.StoredMessage msg = family.StoredMessage.newBuilder()
-                        .setId(msgId)
-                        .setText(content)
-                        .build();
-
-                family.StoreResult result = stub.store(msg);
-
-                if (result.getSuccess()) {
-                    successNodes.add(target);
-                    System.out.printf("   -> %d düğümüne kaydedildi. %n", target.getPort());
-                } else {
-                    System.err.printf("   -> %d düğümüne kaydedilemedi. %n", target.getPort(), result.getMessage());
+            replicator.send(target, msg, round);
+        }
+
+        return round;
+    }
+
+    // Her mesaj için hedefler ayrı ayrı seçilir (halka ya da round-robin), ardından mesajlar hedef üyeye göre
+    // gruplanıp üye başına tek bir StoreBatch RPC'si gönderilir.
+    private static java.util.Map<Integer, ReplicationRound> replicateBatchToMembers(List<StoredMessage> messages, NodeRegistry registry,
+                                                                                   NodeInfo self) {
+        List<NodeInfo> candidates = replicaCandidates(registry);
+        int targetCount = Math.min(TOLERANCE, candidates.size());
+        int quorum = WRITE_QUORUM < 0 ? targetCount : WRITE_QUORUM;
+
+        java.util.Map<Integer, ReplicationRound> rounds = new java.util.LinkedHashMap<>();
+        java.util.Map<NodeInfo, StoredMessageBatch.Builder> batches = new java.util.LinkedHashMap<>();
+        java.util.Map<NodeInfo, java.util.Map<Integer, ReplicationRound>> roundsByTarget = new java.util.HashMap<>();
+
+        for (StoredMessage msg : messages) {
+            List<NodeInfo> targets = selectReplicas(msg.getId(), candidates, targetCount, registry, self);
+            ReplicationRound round = new ReplicationRound(targets.size(), quorum);
+            rounds.put(msg.getId(), round);
+
+            for (NodeInfo target : targets) {
+                batches.computeIfAbsent(target, t -> StoredMessageBatch.newBuilder()).addMessages(msg);
+                roundsByTarget.computeIfAbsent(target, t -> new java.util.HashMap<>()).put(msg.getId(), round);
+            }
+        }
+
+        for (java.util.Map.Entry<NodeInfo, StoredMessageBatch.Builder> e : batches.entrySet()) {
+            NodeInfo target = e.getKey();
+            StoredMessageBatch batch = e.getValue().build();
+            java.util.Map<Integer, ReplicationRound> targetRounds = roundsByTarget.get(target);
+
+            ListenableFuture<StoreResult> future = registry.channels().futureStub(target)
+                    .withDeadlineAfter(REPLICA_DEADLINE_MS, TimeUnit.MILLISECONDS)
+                    .storeBatch(batch);
+
+            Futures.addCallback(future, new FutureCallback<StoreResult>() {
+                @Override
+                public void onSuccess(StoreResult result) {
+                    if (result.getSuccess()) {
+                        System.out.printf("   -> %d mesaj %d düğümüne kaydedildi. %n", batch.getMessagesCount(), target.getPort());
+                        targetRounds.values().forEach(r -> r.ack(target));
+                    } else if (result.getFailedIdsCount() > 0) {
+                        // Yalnızca kaydedilemeyen mesajların round'u başarısız sayılır
+                        java.util.Set<Integer> failed = new java.util.HashSet<>(result.getFailedIdsList());
+                        System.err.printf("   -> %d düğümüne %d/%d mesaj kaydedilemedi: %s%n", target.getPort(),
+                                failed.size(), batch.getMessagesCount(), result.getMessage());
+                        targetRounds.forEach((id, r) -> {
+                            if (failed.contains(id)) r.fail();
+                            else r.ack(target);
+                        });
+                    } else {
+                        System.err.printf("   -> %d düğümüne toplu kayıt başarısız: %s%n", target.getPort(), result.getMessage());
+                        targetRounds.values().forEach(ReplicationRound::fail);
+                    }
                 }
 
-            } catch (Exception e) {
-                System.err.printf("   -> %d düğümüne ulaşılamadı. %n", target.getPort(), e.getMessage());
+                @Override
+                public void onFailure(Throwable t) {
+                    System.err.printf("   -> %d düğümüne ulaşılamadı: %s%n", target.getPort(), t.getMessage());
+                    targetRounds.values().forEach(ReplicationRound::fail);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        return rounds;
+    }
+
+    // Quorum sonrası hâlâ süren replikalar bitince haritayı ve logu tam listeyle günceller.
+    private static void trackRemainingReplicas(int msgId, NodeInfo self, ReplicationRound round, List<NodeInfo> acknowledged,
+                                               String content) {
+        if (round.completion().isDone() && round.confirmed().size() == acknowledged.size()) {
+            pendingRounds.remove(msgId, round);
+            return;
+        }
+
+        backgroundReplications.incrementAndGet();
+        round.completion().whenComplete((all, error) -> {
+            try {
+                synchronized (locationLock(msgId)) {
+                    // Arada aynı ID'ye daha yeni bir SET yazıldıysa girdi artık bu round'un değil; eski
+                    // değeri tutan sahipler yeni girdiye eklenmez
+                    if (pendingRounds.remove(msgId, round) && all != null && all.size() > acknowledged.size()) {
+                        putLocation(msgId, self, all, content);
+                    }
+                }
             } finally {
-                if (channel != null) channel.shutdown();
+                backgroundReplications.decrementAndGet();
+            }
+        });
+    }
+
+    private static Object locationLock(int msgId) {
+        return locationLocks[Math.floorMod(msgId, locationLocks.length)];
+    }
+
+    // round: girdiyi yazan ve sonradan genişletebilecek replikasyon; null ise (onarım vb.) bekleyen round geçersiz olur.
+    // Konum kaydının günlükteki sıra numarasını döner (günlük yoksa 0).
+    private static long recordLocation(int msgId, NodeInfo self, List<NodeInfo> replicas, String content,
+                                       ReplicationRound round) {
+        synchronized (locationLock(msgId)) {
+            if (round != null) {
+                pendingRounds.put(msgId, round);
+            } else {
+                pendingRounds.remove(msgId);
+            }
+            return putLocation(msgId, self, replicas, content);
+        }
+    }
+
+    // OK'ten önce konum kaydının diske inmesini bekler (LOCATION_DURABLE_ACK). Kapalıyken kayıt en fazla
+    // LOCATION_FLUSH_MS sonra iner; arada çöken lider o ID'leri haritada bulamaz (halka yerleşiminde
+    // yeniden başlatmadan sonraki RING_FALLBACK_SEC boyunca GET sahipleri halkadan tahmin eder,
+    // round-robin'de bulunamaz).
+    private static void awaitLocationDurable(long seq) throws IOException {
+        if (!LOCATION_DURABLE_ACK || locationLog == null || seq == 0) return;
+        locationLog.awaitDurable(seq);
+    }
+
+    // locationLock(msgId) altında çağrılır.
+    private static long putLocation(int msgId, NodeInfo self, List<NodeInfo> replicas, String content) {
+        int[] slots = new int[replicas.size() + 1];
+        slots[0] = familyRegistry.slotOf(self);
+        for (int i = 0; i < replicas.size(); i++) {
+            slots[i + 1] = familyRegistry.slotOf(replicas.get(i));
+        }
+        int[] previous = antiEntropy != null ? locationIndex.holderSlots(msgId) : null;
+        locationIndex.put(msgId, slots);
+
+        // Anti-entropy için üye başına beklenen (id, checksum); artık tutmayan eski sahiplerden düşülür
+        if (antiEntropy != null) {
+            int checksum = MerkleTree.checksum(content);
+            for (NodeInfo replica : replicas) {
+                antiEntropy.expect(replica, msgId, checksum);
+            }
+            for (int slot : previous) {
+                NodeInfo old = familyRegistry.nodeAt(slot);
+                if (old.getPort() != self.getPort() && !replicas.contains(old)) antiEntropy.forget(old, msgId);
+            }
+        }
+
+        // Log Dosyasına Yaz (Kalıcılık için şart!)
+        return writeLocation(msgId, self, replicas);
+    }
+
+    private static String fetchFromMembers(int msgId, NodeRegistry registry, NodeInfo self) {
+        long packed = locationOf(msgId);
+        int count = locationIndex.holderCount(msgId, packed);
+
+        List<NodeInfo> holders = new java.util.ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            NodeInfo target = registry.nodeAt(locationIndex.holderSlot(msgId, packed, i));
+            // Aileden çıkarılmış sahiplere sorulmaz (RepairService.liveHolders gibi)
+            if (target.getPort() != self.getPort() && registry.contains(target)) {
+                holders.add(target);
+            }
+        }
+
+        if (count == 0) {
+            // Haritada yok (ör. çökme anında henüz diske basılmamış konum kaydı): halkada yerleşim
+            // ID'den hesaplanabildiği için sahipler halkadan tahmin edilir. Böyle ID'ler yalnızca
+            // yeniden başlatmadan önce yazılmış olabilir; pencere dışında gerçekten olmayan ID'ler için
+            // üyelere boşuna (hedge'li) RPC gönderilmez.
+            if (!ringFallbackOpen()) return null;
+            holders = registry.ring(RING_VNODES).replicas(msgId, TOLERANCE, self);
+            if (holders.isEmpty()) return null; // Kimse bilmiyor
+        }
+
+        try {
+            String text = hedgedReader(registry).read(msgId, holders);
+            if (text != null) {
+                cacheFill(msgId, text);
+                if (count == 0) relearnLocation(msgId, self, holders, text);
             }
+            return text;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // Halkadan bulunan mesajın konumu yeniden kaydedilir; pencere kapandıktan sonra da okunabilsin.
+    private static void relearnLocation(int msgId, NodeInfo self, List<NodeInfo> holders, String content) {
+        synchronized (locationLock(msgId)) {
+            if (locationIndex.get(msgId) == LocationIndex.ABSENT) {
+                putLocation(msgId, self, holders, content);
+            }
+        }
+    }
+
+    private static boolean ringFallbackOpen() {
+        long until = ringFallbackUntilNanos;
+        if (until == 0) return false;
+        if (System.nanoTime() - until < 0) return true;
+        ringFallbackUntilNanos = 0;
+        System.out.println("Halka yedeği kapandı: haritada olmayan ID'ler artık üyelere sorulmuyor.");
+        return false;
+    }
+
+    private static synchronized HedgedReader hedgedReader(NodeRegistry registry) {
+        if (hedgedReader == null) {
+            hedgedReader = new HedgedReader(registry.channels(), readLoads, REPLICA_DEADLINE_MS, HEDGE_PERCENTILE,
+                    HEDGE_INITIAL_DELAY_MS, HEDGE_MIN_DELAY_MS);
         }
+        return hedgedReader;
+    }
 
-        return successNodes;
+    // SYNC: yerel yazım burada, çağıran thread'de yapılır (tamamlanmış future döner).
+    // CONCURRENT / BEHIND: yazım LocalWriter'da başlar, çağıran replikasyona geçer.
+    private static CompletableFuture<Void> saveLocal(int msgId, String content) throws IOException {
+        if (localWriter == null) {
+            diskHandler.saveMessage(msgId, content);
+            return CompletableFuture.completedFuture(null);
+        }
+        return localWriter.write(msgId, content);
     }
 
-    private static String fetchFromMembers(int msgId, NodeInfo self) {
-        List<NodeInfo> holders = messageLocationMap.get(msgId);
+    // BEHIND modunda istemciye onay yerel yazımı beklemez; hata LocalWriter'da loglanır.
+    private static void awaitLocal(CompletableFuture<Void> localWrite) throws IOException {
+        if ("BEHIND".equals(LOCAL_WRITE)) return;
+        try {
+            localWrite.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    private static String pendingLocal(int msgId) {
+        return localWriter == null ? null : localWriter.pending(msgId);
+    }
+
+    private static String cacheGet(int msgId) {
+        return messageCache == null ? null : messageCache.get(msgId);
+    }
 
-        if (holders == null || holders.isEmpty()) {
-            return null; // Kimse bilmiyor
+    private static void cachePut(int msgId, String text) {
+        if (messageCache != null) messageCache.put(msgId, text);
+    }
+
+    private static void cacheFill(int msgId, String text) {
+        if (messageCache != null) messageCache.fill(msgId, text);
+    }
+
+    private static void cacheInvalidate(int msgId) {
+        if (messageCache != null) messageCache.invalidate(msgId);
+    }
+
+    private static void openLocationLog() throws IOException {
+        locationLog = new LocationLog(new File(".").toPath(), LOCATION_FLUSH_MS, LOCATION_COMPACT_RECORDS,
+                LOCATION_SNAPSHOT_INTERVAL_SEC * 1000);
+        boolean restarted = locationLog.exists();
+        boolean migrate = !restarted && new File("messageMap.txt").exists();
+        // Konum kaydı kaybolabilecek ID'ler yalnızca önceki çalışmadan kalır: durable ack'te hiç yoktur,
+        // ilk açılışta da olamaz
+        if (restarted && "RING".equals(PLACEMENT) && !LOCATION_DURABLE_ACK && RING_FALLBACK_SEC > 0) {
+            ringFallbackUntilNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(RING_FALLBACK_SEC);
         }
 
-        for (NodeInfo target : holders) {
+        long started = System.nanoTime();
+        boolean lazy = "LAZY".equals(LOCATION_RECOVERY);
+        LocationLog.Source source = new LocationLog.Source() {
+            @Override
+            public int buckets() {
+                return locationIndex.segmentCount();
+            }
+
+            @Override
+            public int bucketOf(int id) {
+                return locationIndex.segmentOf(id);
+            }
+
+            @Override
+            public void presize(int bucket, int records) {
+                locationIndex.ensureCapacity(bucket, records);
+            }
 
-            if (target.getPort() == self.getPort()) {
-                continue;
+            @Override
+            public void forEach(int bucket, LocationLog.Sink sink) {
+                forEachLocation(bucket, sink);
             }
 
-            ManagedChannel channel = null;
+            @Override
+            public byte[] state() {
+                return encodeLeaderState();
+            }
+        };
+        long tailRecords = locationLog.open(source, NodeMain::restoreLocation, NodeMain::restoreSnapshotLocation,
+                lazy, RECOVERY_THREADS);
+        System.out.printf("Konum günlüğü açıldı: log'dan %d kayıt, %.1f ms (%s kurtarma, %d thread)%n",
+                tailRecords, (System.nanoTime() - started) / 1e6, lazy ? "lazy" : "eager", RECOVERY_THREADS);
+        locationLog.recovered().thenAccept(snapshotRecords -> System.out.printf(
+                "Konum haritası yüklendi: snapshot'tan %d kayıt, toplam %d mesaj, %.1f ms%n",
+                snapshotRecords, locationIndex.size(), (System.nanoTime() - started) / 1e6));
+        restoreLeaderState(locationLog.restoredState());
+
+        if (migrate) {
+            // Eski metin formatındaki haritayı bir kez okuyup snapshot'a çevir
+            loadMessageMap();
+            locationLog.compact();
+            new File("messageMap.txt").renameTo(new File("messageMap.txt.migrated"));
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
-                System.out.printf("   -> %d mesaj, %d düğümünden alınmayı deniyor. %n", msgId, target.getPort());
+                locationLog.close();
+            } catch (IOException e) {
+                System.err.println("Konum günlüğü kapatılamadı: " + e.getMessage());
+            }
+        }, "LocationLogShutdown"));
+    }
 
-                channel = ManagedChannelBuilder.forAddress(target.getHost(), target.getPort())
-                        .usePlaintext().build();
-                FamilyServiceGrpc.FamilyServiceBlockingStub stub = FamilyServiceGrpc.newBlockingStub(channel);
+    // Günlükte portlar saklanır; slot numaraları yalnızca bu sürecin içinde geçerlidir.
+    private static void restoreLocation(int id, int[] ports) {
+        locationIndex.put(id, portsToSlots(withLeader(ports)));
+    }
 
-                family.MessageId request = family.MessageId.newBuilder().setId(msgId).build();
-                family.StoredMessage response = stub.retrieve(request);
+    // Snapshot kayıtları log'dan ve kurtarma sırasında gelen SET'lerden eskidir; üzerlerine yazmaz.
+    private static void restoreSnapshotLocation(int id, int[] ports) {
+        locationIndex.putIfAbsent(id, portsToSlots(withLeader(ports)));
+    }
 
-                String text = response.getText();
+    // Eski sürümlerin log kayıtları lideri içermez; index'teki her girdi lider ile başlar.
+    private static int[] withLeader(int[] ports) {
+        for (int port : ports) {
+            if (port == START_PORT) return ports;
+        }
+        int[] all = new int[ports.length + 1];
+        all[0] = START_PORT;
+        System.arraycopy(ports, 0, all, 1, ports.length);
+        return all;
+    }
 
-                if (text == null || text.startsWith("ERROR") || text.isEmpty()) {
-                    System.out.println("   --> alınamadı sonraki düğüm deneniyor. ");
-                    continue;
-                }
-                return text;
+    private static int[] portsToSlots(int[] ports) {
+        int[] slots = new int[ports.length];
+        for (int i = 0; i < ports.length; i++) {
+            int port = ports[i];
+            int slot = portSlots[port] - 1;
+            if (slot < 0) {
+                slot = familyRegistry.slotOf(NodeInfo.newBuilder().setHost("127.0.0.1").setPort(port).build());
+                portSlots[port] = slot + 1; // slot'lar sabit olduğundan yarış zararsız
+            }
+            slots[i] = slot;
+        }
+        return slots;
+    }
 
-            } catch (Exception e) {
-                System.err.printf("   --> Bağlantı hatası, sonraki düğüm deneniyor. ", target.getPort());
-            } finally {
-                if (channel != null) channel.shutdown();
+    // Snapshot'taki ek durum: [roundRobin:int][üye sayısı:int][(host:UTF, port:int) * n]
+    private static byte[] encodeLeaderState() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            List<NodeInfo> members = familyRegistry.snapshot();
+            out.writeInt(roundRobinCounter.get());
+            out.writeInt(members.size());
+            for (NodeInfo member : members) {
+                out.writeUTF(member.getHost());
+                out.writeInt(member.getPort());
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return bytes.toByteArray();
+    }
 
-        return null;
+    private static void restoreLeaderState(byte[] state) {
+        if (state == null) return;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(state))) {
+            roundRobinCounter.set(in.readInt());
+            int count = in.readInt();
+            List<NodeInfo> members = new java.util.ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                members.add(NodeInfo.newBuilder().setHost(in.readUTF()).setPort(in.readInt()).build());
+            }
+            restoredMembers = members;
+            System.out.printf("Snapshot'tan lider durumu yüklendi: %d üye, round-robin sayacı %d%n",
+                    count, roundRobinCounter.get());
+        } catch (IOException e) {
+            System.err.println("Snapshot'taki lider durumu okunamadı: " + e.getMessage());
+        }
+    }
+
+    // Lider yeniden başladığında snapshot'taki üyelere yeniden katılır; yalnızca port taramasına
+    // (discoverExistingNodes) güvenilirse lider kendinden büyük portlu üyeleri hiç bulamaz.
+    private static void rejoinRestoredMembers(NodeRegistry registry, NodeInfo self) {
+        for (NodeInfo member : restoredMembers) {
+            if (member.getPort() == self.getPort()) continue;
+            ListenableFuture<FamilyView> future = registry.channels().candidateFutureStub(member)
+                    .withDeadlineAfter(REPLICA_DEADLINE_MS, TimeUnit.MILLISECONDS)
+                    .join(self);
+
+            Futures.addCallback(future, new FutureCallback<FamilyView>() {
+                @Override
+                public void onSuccess(FamilyView view) {
+                    registry.addAll(view.getMembersList());
+                    System.out.printf("Snapshot'taki üye %d yeniden aileye katıldı.%n", member.getPort());
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (!registry.snapshot().contains(member)) {
+                        registry.channels().evict(member);
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        }
+    }
+
+    // Lazy kurtarmada ID'nin snapshot bucket'ı henüz yüklenmediyse önce onu yükler.
+    private static long locationOf(int msgId) {
+        if (locationLog != null) locationLog.ensureLoaded(msgId);
+        return locationIndex.get(msgId);
+    }
+
+    private static void forEachLocation(int segment, LocationLog.Sink sink) {
+        locationIndex.forEach(segment, (id, packed) -> {
+            int count = locationIndex.holderCount(id, packed);
+            int[] ports = new int[count];
+            for (int i = 0; i < count; i++) {
+                ports[i] = familyRegistry.nodeAt(locationIndex.holderSlot(id, packed, i)).getPort();
+            }
+            sink.accept(id, ports);
+        });
     }
 
     private static void loadMessageMap() {
         File file = new File("messageMap.txt");
         if (!file.exists()) {
-            System.out.println("messageMap.txt bulunamadı.");
             return;
         }
 
@@ -335,19 +1091,15 @@ public class NodeMain {
                     String portPart = mainParts[1].trim();
                     String[] ports = portPart.split("\\s+");
 
-                    List<NodeInfo> nodeList = new java.util.ArrayList<>();
+                    int[] portNumbers = new int[ports.length];
+                    int n = 0;
 
                     for (String p : ports) {
                         if (p.isEmpty()) continue;
-
-                        NodeInfo node = NodeInfo.newBuilder()
-                                .setHost("127.0.0.1")
-                                .setPort(Integer.parseInt(p))
-                                .build();
-                        nodeList.add(node);
+                        portNumbers[n++] = Integer.parseInt(p);
                     }
 
-                    messageLocationMap.put(id, nodeList);
+                    locationIndex.put(id, portsToSlots(withLeader(java.util.Arrays.copyOf(portNumbers, n))));
                     count++;
 
                 } catch (Exception e) {
@@ -359,28 +1111,16 @@ public class NodeMain {
         }
     }
 
-    public static void writeMessageMap(int messageId, List<NodeInfo> nodes) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("messageMap.txt", true))) {
-
-            StringBuilder sb = new StringBuilder();
-
-            // Format: ID:
-            sb.append(messageId).append(":");
-
-            // Format: Port Port Port
-            for (NodeInfo n : nodes) {
-                sb.append(" ").append(n.getPort());
-            }
-
-            // Satırı dosyaya yaz ve yeni satıra geç
-            writer.write(sb.toString());
-            writer.newLine();
+    // Kayıt, index'teki ve snapshot'taki girdiyle aynı biçimdedir: önce lider, sonra replikalar.
+    private static long writeLocation(int messageId, NodeInfo self, List<NodeInfo> nodes) {
+        if (locationLog == null) return 0;
 
-            System.out.println("messageMap.txt güncellendi: " + sb.toString());
-
-        } catch (IOException e) {
-            System.err.println("messageMap.txt güncellenirken hata oluştu: " + e.getMessage());
+        int[] ports = new int[nodes.size() + 1];
+        ports[0] = self.getPort();
+        for (int i = 0; i < nodes.size(); i++) {
+            ports[i + 1] = nodes.get(i).getPort();
         }
+        return locationLog.append(messageId, ports);
     }
 
     private static void loadSaveConfig() {
@@ -406,10 +1146,44 @@ public class NodeMain {
             case 1: return "Buffered IO (BufferedWriter)";
             case 2: return "Unbuffered IO (FileOutputStream)";
             case 3: return "Zero-Copy / NIO (FileChannel)";
+            case 4: return "Segment Log (Append-Only)";
             default: return "Bilinmiyor (Varsayılan Buffered)";
         }
     }
 
+    // RING: replikalar ID'nin halkadaki yerinden hesaplanır (üyelik değişmedikçe hep aynı üyeler).
+    // ROUND_ROBIN: eski davranış, global sayaçla sırayla dağıtım.
+    // Şüpheli üyeler (sağlık kontrolü) yerine sıradaki sağlıklı üyeler seçilir; sağlıklı üye yetmezse
+    // şüpheliler de kullanılır. Gerçek sahipler konum haritasına yazıldığı için okumalar etkilenmez.
+    private static List<NodeInfo> selectReplicas(int msgId, List<NodeInfo> candidates, int count,
+                                                 NodeRegistry registry, NodeInfo self) {
+        int suspected = 0;
+        for (NodeInfo candidate : candidates) {
+            if (isSuspected(candidate)) suspected++;
+        }
+
+        if ("RING".equals(PLACEMENT)) {
+            List<NodeInfo> ordered = registry.ring(RING_VNODES).replicas(msgId, count + suspected, self);
+            return suspected == 0 ? ordered : preferHealthy(ordered, count);
+        }
+        if (suspected == 0) return selectNodesRoundRobin(candidates, count);
+        return preferHealthy(selectNodesRoundRobin(candidates, candidates.size()), count);
+    }
+
+    // Tercih sırasını koruyarak önce sağlıklı, sonra şüpheli üyelerden count tane seçer.
+    private static List<NodeInfo> preferHealthy(List<NodeInfo> ordered, int count) {
+        List<NodeInfo> selected = new java.util.ArrayList<>(count);
+        for (NodeInfo n : ordered) {
+            if (selected.size() == count) return selected;
+            if (!isSuspected(n)) selected.add(n);
+        }
+        for (NodeInfo n : ordered) {
+            if (selected.size() == count) break;
+            if (isSuspected(n)) selected.add(n);
+        }
+        return selected;
+    }
+
     private static List<NodeInfo> selectNodesRoundRobin(List<NodeInfo> candidates, int tolerance) {
         List<NodeInfo> selected = new java.util.ArrayList<>();
         int size = candidates.size();
@@ -446,10 +1220,136 @@ public class NodeMain {
             return;
         }
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line = reader.readLine();
-            if (line != null && line.startsWith("TOLERANCE=")) {
-                TOLERANCE = Integer.parseInt(line.split("=")[1].trim());
-                System.out.println("Tolerans:  " + TOLERANCE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || !line.contains("=")) continue;
+
+                String[] parts = line.split("=", 2);
+                String key = parts[0].trim();
+                String value = parts[1].trim();
+
+                switch (key) {
+                    case "TOLERANCE":
+                        TOLERANCE = Integer.parseInt(value);
+                        System.out.println("Tolerans:  " + TOLERANCE);
+                        break;
+                    case "WRITE_QUORUM":
+                        WRITE_QUORUM = Integer.parseInt(value);
+                        System.out.println("Yazma quorum'u:  " + WRITE_QUORUM);
+                        break;
+                    case "SERVER_MODE":
+                        SERVER_MODE = value.toUpperCase();
+                        break;
+                    case "MAX_CONNECTIONS":
+                        MAX_CONNECTIONS = Integer.parseInt(value);
+                        break;
+                    case "ACCEPT_BACKLOG":
+                        ACCEPT_BACKLOG = Integer.parseInt(value);
+                        break;
+                    case "HEALTH_INTERVAL_MS":
+                        HEALTH_INTERVAL_MS = Long.parseLong(value);
+                        break;
+                    case "HEALTH_TIMEOUT_MS":
+                        HEALTH_TIMEOUT_MS = Long.parseLong(value);
+                        break;
+                    case "ANTI_ENTROPY_INTERVAL_SEC":
+                        ANTI_ENTROPY_INTERVAL_SEC = Long.parseLong(value);
+                        break;
+                    case "MERKLE_DEPTH":
+                        MERKLE_DEPTH = Integer.parseInt(value);
+                        break;
+                    case "REPAIR_CONCURRENCY":
+                        REPAIR_CONCURRENCY = Integer.parseInt(value);
+                        break;
+                    case "REPAIR_MAX_BYTES_PER_SEC":
+                        REPAIR_MAX_BYTES_PER_SEC = Long.parseLong(value);
+                        break;
+                    case "HEALTH_MAX_FAILURES":
+                        HEALTH_MAX_FAILURES = Integer.parseInt(value);
+                        break;
+                    case "HEDGE_PERCENTILE":
+                        HEDGE_PERCENTILE = Integer.parseInt(value);
+                        break;
+                    case "HEDGE_INITIAL_DELAY_MS":
+                        HEDGE_INITIAL_DELAY_MS = Long.parseLong(value);
+                        break;
+                    case "HEDGE_MIN_DELAY_MS":
+                        HEDGE_MIN_DELAY_MS = Long.parseLong(value);
+                        break;
+                    case "ADMISSION_CAPACITY":
+                        ADMISSION_CAPACITY = Integer.parseInt(value);
+                        break;
+                    case "ADMISSION_POLICY":
+                        ADMISSION_POLICY = value.toUpperCase();
+                        break;
+                    case "WORKER_THREADS":
+                        WORKER_THREADS = Integer.parseInt(value);
+                        break;
+                    case "MAX_PENDING_PER_MEMBER":
+                        MAX_PENDING_PER_MEMBER = Integer.parseInt(value);
+                        break;
+                    case "READ_MODE":
+                        READ_MODE = value.toUpperCase();
+                        break;
+                    case "MAPPED_SEGMENTS":
+                        MAPPED_SEGMENTS = Integer.parseInt(value);
+                        break;
+                    case "ZERO_COPY_GET":
+                        ZERO_COPY_GET = Boolean.parseBoolean(value);
+                        break;
+                    case "GROUP_COMMIT":
+                        GROUP_COMMIT = Boolean.parseBoolean(value);
+                        break;
+                    case "GROUP_COMMIT_MAX_BATCH":
+                        GROUP_COMMIT_MAX_BATCH = Integer.parseInt(value);
+                        break;
+                    case "GROUP_COMMIT_MAX_WAIT_US":
+                        GROUP_COMMIT_MAX_WAIT_US = Long.parseLong(value);
+                        break;
+                    case "CACHE_MAX_MB":
+                        CACHE_MAX_MB = Integer.parseInt(value);
+                        break;
+                    case "CACHE_MODE":
+                        CACHE_MODE = value.toUpperCase();
+                        break;
+                    case "LOCATION_FLUSH_MS":
+                        LOCATION_FLUSH_MS = Long.parseLong(value);
+                        break;
+                    case "LOCATION_DURABLE_ACK":
+                        LOCATION_DURABLE_ACK = Boolean.parseBoolean(value);
+                        break;
+                    case "LOCATION_COMPACT_RECORDS":
+                        LOCATION_COMPACT_RECORDS = Long.parseLong(value);
+                        break;
+                    case "PLACEMENT":
+                        PLACEMENT = value.toUpperCase();
+                        System.out.println("Replika yerleşimi: " + PLACEMENT);
+                        break;
+                    case "RING_VNODES":
+                        RING_VNODES = Integer.parseInt(value);
+                        break;
+                    case "RING_FALLBACK_SEC":
+                        RING_FALLBACK_SEC = Long.parseLong(value);
+                        break;
+                    case "LOCAL_WRITE":
+                        LOCAL_WRITE = value.toUpperCase();
+                        break;
+                    case "LOCAL_WRITE_THREADS":
+                        LOCAL_WRITE_THREADS = Integer.parseInt(value);
+                        break;
+                    case "LOCATION_RECOVERY":
+                        LOCATION_RECOVERY = value.toUpperCase();
+                        break;
+                    case "LOCATION_SNAPSHOT_INTERVAL_SEC":
+                        LOCATION_SNAPSHOT_INTERVAL_SEC = Long.parseLong(value);
+                        break;
+                    case "RECOVERY_THREADS":
+                        RECOVERY_THREADS = Integer.parseInt(value);
+                        break;
+                    default:
+                        System.out.println("tolerance.conf: bilinmeyen ayar " + key);
+                }
             }
         } catch (Exception e) {
             System.err.println("Hata: tolerance.conf okunamadı.  " + e.getMessage());
@@ -468,10 +1368,37 @@ public class NodeMain {
 
             for (NodeInfo n : members) {
                 boolean isMe = n.getHost().equals(self.getHost()) && n.getPort() == self.getPort();
-                System.out.printf(" - %s:%d%s%n",
+                ConnectivityState state = registry.channels().state(n);
+                System.out.printf(" - %s:%d%s%s%n",
                         n.getHost(),
                         n.getPort(),
-                        isMe ? " (me)" : "");
+                        isMe ? " (me)" : "",
+                        isMe || state == null ? "" : " [" + state + "]");
+            }
+            if (self.getPort() == START_PORT) {
+                System.out.println("Background replications in flight: " + backgroundReplications.get());
+                if (localWriter != null) {
+                    System.out.println("Local writes in flight: " + localWriter.inFlight() + " (" + LOCAL_WRITE + ")");
+                }
+            }
+            if (messageCache != null) {
+                System.out.println("Cache: " + messageCache.stats());
+            }
+            if (hedgedReader != null) {
+                System.out.println("Remote reads: " + hedgedReader.stats());
+            }
+            String memberReads = readLoads.stats();
+            if (!memberReads.isEmpty()) {
+                System.out.println("Reads per member: " + memberReads);
+            }
+            if (repairService != null) {
+                System.out.println("Repair: " + repairService.stats());
+            }
+            if (antiEntropy != null) {
+                System.out.println("Anti-entropy: " + antiEntropy.stats());
+            }
+            if (commandPipeline != null && commandPipeline.admission() != null) {
+                System.out.println("Admission: " + commandPipeline.admission().stats());
             }
             System.out.println("======================================");
         }, 3, PRINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
@@ -6,17 +6,36 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class NodeRegistry {
 
     private final Set<NodeInfo> nodes = ConcurrentHashMap.newKeySet();
+    private final ChannelPool channels = new ChannelPool(this::contains);
+
+    // Her NodeInfo bir kez sabit bir slot numarasına eşlenir (aileden çıksa bile korunur);
+    // LocationIndex protobuf nesneleri yerine bu küçük tamsayıları saklar.
+    private final ConcurrentHashMap<NodeInfo, Integer> slots = new ConcurrentHashMap<>();
+    private volatile NodeInfo[] bySlot = new NodeInfo[0];
+
+    // Üyelik her değiştiğinde artar; halka bu sürümle kurulur ve eskiyince yeniden kurulur.
+    private final AtomicLong membershipVersion = new AtomicLong();
+    private volatile HashRing ring;
+    private final List<Consumer<NodeInfo>> removalListeners = new CopyOnWriteArrayList<>();
 
     public void add(NodeInfo node) {
-        nodes.add(node);
+        if (nodes.add(node)) {
+            membershipVersion.incrementAndGet();
+            channels.channel(node);
+        }
     }
 
     public void addAll(Collection<NodeInfo> others) {
-        nodes.addAll(others);
+        for (NodeInfo node : others) {
+            add(node);
+        }
     }
 
     public List<NodeInfo> snapshot() {
@@ -24,6 +43,57 @@ public class NodeRegistry {
     }
 
     public void remove(NodeInfo node) {
-        nodes.remove(node);
+        if (nodes.remove(node)) {
+            membershipVersion.incrementAndGet();
+            channels.evict(node);
+            removalListeners.forEach(listener -> listener.accept(node));
+        }
+    }
+
+    public void onRemove(Consumer<NodeInfo> listener) {
+        removalListeners.add(listener);
+    }
+
+    public HashRing ring(int virtualNodes) {
+        HashRing current = ring;
+        long version = membershipVersion.get();
+        if (current != null && current.version() == version) return current;
+
+        // Sürüm snapshot'tan önce okunur; arada bir değişiklik olursa halka bir sonraki çağrıda yine kurulur
+        HashRing rebuilt = new HashRing(version, snapshot(), virtualNodes);
+        ring = rebuilt;
+        return rebuilt;
+    }
+
+    public ChannelPool channels() {
+        return channels;
+    }
+
+    public int slotOf(NodeInfo node) {
+        Integer slot = slots.get(node);
+        if (slot != null) return slot;
+
+        synchronized (slots) {
+            slot = slots.get(node);
+            if (slot != null) return slot;
+
+            NodeInfo[] grown = java.util.Arrays.copyOf(bySlot, bySlot.length + 1);
+            grown[bySlot.length] = node;
+            bySlot = grown;
+            slots.put(node, grown.length - 1);
+            return grown.length - 1;
+        }
+    }
+
+    public NodeInfo nodeAt(int slot) {
+        return bySlot[slot];
+    }
+
+    public int slotCount() {
+        return bySlot.length;
+    }
+
+    public boolean contains(NodeInfo node) {
+        return nodes.contains(node);
     }
 }
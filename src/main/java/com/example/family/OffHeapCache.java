@@ -0,0 +1,295 @@
+package com.example.family;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+// Mesaj gövdelerini heap dışında (direct ByteBuffer) tutan slab tabanlı önbellek.
+// Bellek SLAB_SIZE'lık slab'lara bölünür; her slab tek bir boyut sınıfına (64 B .. 1 MB,
+// ikinin kuvvetleri) ait eşit parçalara ayrılır. Toplam slab sayısı maxBytes ile sınırlıdır
+// (kesin üst sınır). Yer kalmadığında aynı sınıftaki en eski (LRU) girdi çıkarılır.
+// Slab'lar ilk alan sınıfa bağlı kalsaydı mesaj boyu dağılımı değişince yeni boyutlar hiç yer bulamazdı
+// (kireçlenme). Bu yüzden bir sınıfın çıkarma sayısı bir slab dolusu parçaya ulaşınca ve daha az baskı
+// altındaki bir sınıf varsa, o sınıfın en eski girdisinin slab'ı boşaltılıp baskı altındaki sınıfa verilir;
+// slab'ı hiç olmayan sınıf ilk ihtiyacında hemen bir slab alır.
+// Heap'te yalnızca id -> konum index'i kalır; GC baskısı veri boyutuyla büyümez.
+public class OffHeapCache implements ReadCache {
+
+    private static final int SLAB_SIZE = 1024 * 1024;
+    private static final int MIN_CHUNK_SHIFT = 6; // 64 B
+    private static final int MAX_CHUNK_SHIFT = 20; // 1 MB
+    private static final int CLASS_COUNT = MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT + 1;
+
+    private final int maxSlabs;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final LongStack[] freeChunks = new LongStack[CLASS_COUNT];
+    private final int[] slabsPerClass = new int[CLASS_COUNT];
+    private final long[] pressure = new long[CLASS_COUNT]; // son yeniden atamadan beri çıkarma sayısı
+    private final Map<Integer, Entry> index = new HashMap<>();
+    private final List<LinkedHashMap<Integer, Entry>> lru = new ArrayList<>(CLASS_COUNT);
+    private long usedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong reassigned = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong(); // yer bulunamadığı için önbelleğe alınamayanlar
+
+    public OffHeapCache(long maxBytes) {
+        this.maxSlabs = (int) Math.max(1, maxBytes / SLAB_SIZE);
+        for (int c = 0; c < CLASS_COUNT; c++) {
+            freeChunks[c] = new LongStack();
+            lru.add(new LinkedHashMap<>(64, 0.75f, true));
+        }
+    }
+
+    @Override
+    public String get(int id) {
+        byte[] bytes = getBytes(id);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Parça serbest kalıp yeniden kullanılabileceği için veri kilit altında kopyalanır.
+    @Override
+    public byte[] getBytes(int id) {
+        byte[] result = null;
+        synchronized (this) {
+            Entry e = index.get(id);
+            if (e != null) {
+                lru.get(e.sizeClass).get(id); // LRU sırasını güncelle
+                result = new byte[e.length];
+                slabs.get(e.slab).get(e.offset, result);
+            }
+        }
+        (result != null ? hits : misses).incrementAndGet();
+        return result;
+    }
+
+    @Override
+    public void put(int id, String text) {
+        putBytes(id, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void fill(int id, String text) {
+        store(id, ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    @Override
+    public void putBytes(int id, byte[] utf8) {
+        store(id, ByteBuffer.wrap(utf8), false);
+    }
+
+    @Override
+    public void fillBytes(int id, ByteBuffer utf8) {
+        store(id, utf8.duplicate(), true);
+    }
+
+    @Override
+    public synchronized void invalidate(int id) {
+        Entry e = index.remove(id);
+        if (e != null) release(id, e);
+    }
+
+    @Override
+    public String stats() {
+        long h = hits.get();
+        long m = misses.get();
+        long total = h + m;
+        synchronized (this) {
+            long freeBytes = 0;
+            for (int c = 0; c < CLASS_COUNT; c++) {
+                freeBytes += (long) freeChunks[c].size() << (c + MIN_CHUNK_SHIFT);
+            }
+            return String.format("off-heap entries=%d, slabs=%d/%d, used=%.1f MB, free-in-slabs=%.1f MB, slabs/class=%s, hits=%d, misses=%d (hit %.1f%%), evictions=%d, reassigned=%d, rejected=%d",
+                    index.size(), slabs.size(), maxSlabs, usedBytes / 1048576.0, freeBytes / 1048576.0,
+                    Arrays.toString(slabsPerClass), h, m, total == 0 ? 0.0 : 100.0 * h / total, evictions.get(),
+                    reassigned.get(), rejected.get());
+        }
+    }
+
+    private void store(int id, ByteBuffer data, boolean onlyIfAbsent) {
+        int length = data.remaining();
+        int sizeClass = classOf(length);
+
+        synchronized (this) {
+            if (onlyIfAbsent && index.containsKey(id)) return;
+
+            Entry previous = index.remove(id);
+            if (previous != null) release(id, previous);
+
+            if (sizeClass < 0) return; // 1 MB'dan büyük mesajlar önbelleğe alınmaz
+
+            long chunk = allocate(sizeClass);
+            if (chunk < 0) {
+                rejected.incrementAndGet(); // bu sınıfa ayrılabilecek yer yok
+                return;
+            }
+
+            Entry e = new Entry((int) (chunk >>> 32), (int) chunk, length, sizeClass);
+            slabs.get(e.slab).put(e.offset, data, data.position(), length);
+            index.put(id, e);
+            lru.get(sizeClass).put(id, e);
+            usedBytes += length;
+        }
+    }
+
+    // Serbest parça, yoksa yeni slab, o da yoksa başka sınıftan slab ya da aynı sınıftan LRU çıkarma.
+    private long allocate(int sizeClass) {
+        LongStack free = freeChunks[sizeClass];
+        if (free.size() > 0) return free.pop();
+
+        if (slabs.size() < maxSlabs) {
+            int slab = slabs.size();
+            slabs.add(ByteBuffer.allocateDirect(SLAB_SIZE));
+            return carve(slab, sizeClass);
+        }
+
+        LinkedHashMap<Integer, Entry> entries = lru.get(sizeClass);
+        boolean starved = slabsPerClass[sizeClass] == 0 || pressure[sizeClass] >= chunksPerSlab(sizeClass);
+        if (starved) {
+            int donor = donorFor(sizeClass);
+            if (donor >= 0) {
+                reassign(donor, sizeClass);
+                return free.pop();
+            }
+        }
+
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        if (!eldest.hasNext()) return -1;
+
+        Map.Entry<Integer, Entry> victim = eldest.next();
+        eldest.remove();
+        index.remove(victim.getKey());
+        usedBytes -= victim.getValue().length;
+        evictions.incrementAndGet();
+        pressure[sizeClass]++;
+        return ((long) victim.getValue().slab << 32) | victim.getValue().offset;
+    }
+
+    // Slab'ı sınıfın parçalarına böler; ilk parçayı döner, kalanları serbest listeye ekler.
+    private long carve(int slab, int sizeClass) {
+        slabsPerClass[sizeClass]++;
+        int chunkSize = 1 << (sizeClass + MIN_CHUNK_SHIFT);
+        for (int offset = SLAB_SIZE - chunkSize; offset > 0; offset -= chunkSize) {
+            freeChunks[sizeClass].push(((long) slab << 32) | offset);
+        }
+        return (long) slab << 32;
+    }
+
+    // Slab verebilecek, baskısı en düşük (eşitse slab'ı en çok) sınıf. Slab'ı olan bir sınıf ancak donör
+    // ondan daha az baskı altındaysa slab alır; aksi halde kendi içinde çıkarma yapar.
+    private int donorFor(int sizeClass) {
+        int donor = -1;
+        for (int c = 0; c < CLASS_COUNT; c++) {
+            if (c == sizeClass || slabsPerClass[c] == 0) continue;
+            if (donor < 0 || pressure[c] < pressure[donor]
+                    || (pressure[c] == pressure[donor] && slabsPerClass[c] > slabsPerClass[donor])) {
+                donor = c;
+            }
+        }
+        if (donor >= 0 && slabsPerClass[sizeClass] > 0 && pressure[donor] >= pressure[sizeClass]) return -1;
+        return donor;
+    }
+
+    // Donör sınıfın en eski girdisinin slab'ını (girdisi yoksa boş bir slab'ını) boşaltıp hedef sınıfa verir.
+    private void reassign(int donor, int target) {
+        LinkedHashMap<Integer, Entry> donorEntries = lru.get(donor);
+        int slab = donorEntries.isEmpty()
+                ? (int) (freeChunks[donor].peek() >>> 32)
+                : donorEntries.values().iterator().next().slab;
+
+        Iterator<Map.Entry<Integer, Entry>> it = donorEntries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Entry> e = it.next();
+            if (e.getValue().slab != slab) continue;
+            it.remove();
+            index.remove(e.getKey());
+            usedBytes -= e.getValue().length;
+            evictions.incrementAndGet();
+        }
+        freeChunks[donor].removeIf(chunk -> (int) (chunk >>> 32) == slab);
+        slabsPerClass[donor]--;
+
+        freeChunks[target].push(carve(slab, target));
+        reassigned.incrementAndGet();
+
+        // Baskı göreli ölçülür: hedefin sayacı sıfırlanır, diğerleri yarıya iner ki eski çıkarmalar unutulsun
+        pressure[target] = 0;
+        for (int c = 0; c < CLASS_COUNT; c++) {
+            pressure[c] >>>= 1;
+        }
+    }
+
+    private static int chunksPerSlab(int sizeClass) {
+        return SLAB_SIZE >>> (sizeClass + MIN_CHUNK_SHIFT);
+    }
+
+    private void release(int id, Entry e) {
+        lru.get(e.sizeClass).remove(id);
+        freeChunks[e.sizeClass].push(((long) e.slab << 32) | e.offset);
+        usedBytes -= e.length;
+    }
+
+    private static int classOf(int length) {
+        int shift = MIN_CHUNK_SHIFT;
+        while ((1 << shift) < length) {
+            shift++;
+            if (shift > MAX_CHUNK_SHIFT) return -1;
+        }
+        return shift - MIN_CHUNK_SHIFT;
+    }
+
+    private static final class Entry {
+        final int slab;
+        final int offset;
+        final int length;
+        final int sizeClass;
+
+        Entry(int slab, int offset, int length, int sizeClass) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.sizeClass = sizeClass;
+        }
+    }
+
+    // Serbest parça adresleri için kutulamasız yığın.
+    private static final class LongStack {
+        private long[] items = new long[16];
+        private int size;
+
+        void push(long v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+
+        long pop() {
+            return items[--size];
+        }
+
+        long peek() {
+            return items[size - 1];
+        }
+
+        void removeIf(LongPredicate predicate) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!predicate.test(items[i])) items[kept++] = items[i];
+            }
+            size = kept;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.family;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// Çalışan bir lidere (TCP 6666) bağlanıp farklı pipeline derinliklerinde SET atar
+// ve saniyedeki işlem sayısını yazdırır.
+// Kullanım: PipelineBenchmark [host] [port] [işlem sayısı]
+public class PipelineBenchmark {
+
+    private static final int[] DEPTHS = {1, 16, 128};
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6666;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        System.out.printf("%-8s %-10s %-12s%n", "depth", "ops", "ops/sec");
+        int idBase = 1_000_000;
+
+        for (int depth : DEPTHS) {
+            double opsPerSec = run(host, port, operations, depth, idBase);
+            System.out.printf("%-8d %-10d %-12.0f%n", depth, operations, opsPerSec);
+            idBase += operations;
+        }
+    }
+
+    private static double run(String host, int port, int operations, int depth, int idBase) throws IOException {
+        try (Socket socket = new Socket(host, port);
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), false);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+
+            long start = System.nanoTime();
+            int sent = 0;
+
+            while (sent < operations) {
+                int window = Math.min(depth, operations - sent);
+                for (int i = 0; i < window; i++) {
+                    out.println("SET " + (idBase + sent + i) + " benchmark-payload-" + (sent + i));
+                }
+                out.flush();
+
+                for (int i = 0; i < window; i++) {
+                    String response = in.readLine();
+                    if (response == null) throw new IOException("Bağlantı beklenmedik şekilde kapandı");
+                }
+                sent += window;
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return operations / seconds;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.family;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Mesaj okuma önbelleği. put: SET yolu (her zaman yazar), fill: okuma yolu (yalnızca yoksa ekler).
+public interface ReadCache {
+
+    String get(int id);
+
+    void put(int id, String text);
+
+    void fill(int id, String text);
+
+    void invalidate(int id);
+
+    String stats();
+
+    // Bayt seviyesinde erişim; off-heap önbellek String'e çevirmeden döner.
+    default byte[] getBytes(int id) {
+        String text = get(id);
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    default void fillBytes(int id, ByteBuffer utf8) {
+        fill(id, StandardCharsets.UTF_8.decode(utf8.duplicate()).toString());
+    }
+
+    default void putBytes(int id, byte[] utf8) {
+        put(id, new String(utf8, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.family;
+
+import family.NodeInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Üye başına okuma yükünü izler: devam eden istek sayısı ve cevap süresinin EWMA'sı.
+// order() sahipler arasından rastgele iki aday seçip maliyeti düşük olanı öne alır
+// (power-of-two-choices); böylece okuma trafiği listenin ilk sahibine yığılmaz ve
+// tüm üyeleri taramadan yükü dengeler. Maliyet: ewma * (devam eden + 1).
+// Seçilmeyen üyenin EWMA'sı zamanla söner; bir kez yavaş ölçülen üye sonsuza dek dışarıda kalmaz.
+// Sağlık kontrolünün şüpheli saydığı üyeler, sağlıklı bir sahip varken yalnızca listenin sonunda
+// (son çare failover olarak) yer alır.
+public class ReadLoadTracker {
+
+    private static final double ALPHA = 0.2;
+    private static final double DECAY_NANOS = 500_000_000.0;
+
+    private final ConcurrentHashMap<NodeInfo, Load> loads = new ConcurrentHashMap<>();
+    private final Predicate<NodeInfo> suspected;
+
+    public ReadLoadTracker() {
+        this(node -> false);
+    }
+
+    public ReadLoadTracker(Predicate<NodeInfo> suspected) {
+        this.suspected = suspected;
+    }
+
+    // Sahipleri okuma sırasına koyar: ilk eleman seçilen üye, ikincisi (hedge/failover için) diğer aday.
+    public List<NodeInfo> order(List<NodeInfo> holders) {
+        if (holders.isEmpty()) return holders;
+
+        List<NodeInfo> healthy = null;
+        List<NodeInfo> doubtful = null;
+        for (int i = 0; i < holders.size(); i++) {
+            NodeInfo node = holders.get(i);
+            if (suspected.test(node)) {
+                if (doubtful == null) {
+                    doubtful = new ArrayList<>();
+                    healthy = new ArrayList<>(holders.subList(0, i));
+                }
+                doubtful.add(node);
+            } else if (healthy != null) {
+                healthy.add(node);
+            }
+        }
+        if (doubtful == null || healthy.isEmpty()) return balance(holders);
+
+        List<NodeInfo> ordered = balance(healthy);
+        if (ordered == healthy) ordered = new ArrayList<>(healthy);
+        ordered.addAll(doubtful);
+        return ordered;
+    }
+
+    private List<NodeInfo> balance(List<NodeInfo> holders) {
+        if (holders.size() < 2) return holders;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(holders.size());
+        int b = random.nextInt(holders.size() - 1);
+        if (b >= a) b++;
+        if (cost(holders.get(b)) < cost(holders.get(a))) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+
+        List<NodeInfo> ordered = new ArrayList<>(holders.size());
+        ordered.add(holders.get(a));
+        ordered.add(holders.get(b));
+        for (int i = 0; i < holders.size(); i++) {
+            if (i != a && i != b) ordered.add(holders.get(i));
+        }
+        return ordered;
+    }
+
+    public NodeInfo choose(List<NodeInfo> holders) {
+        return holders.isEmpty() ? null : order(holders).get(0);
+    }
+
+    public void started(NodeInfo node) {
+        load(node).inFlight.incrementAndGet();
+    }
+
+    public void finished(NodeInfo node, long latencyNanos) {
+        Load load = loads.get(node);
+        if (load == null) return; // okuma sürerken üye çıkarıldı
+        load.inFlight.decrementAndGet();
+        load.reads.incrementAndGet();
+        sample(load, latencyNanos);
+    }
+
+    // Hedge kaybedeni iptal edildi: geçen süre gerçek sürenin alt sınırıdır. Yalnızca EWMA'dan
+    // büyükse örnek sayılır; aksi halde takılan bir üye iptallerle hiç cezalandırılmazdı.
+    public void cancelled(NodeInfo node, long elapsedNanos) {
+        Load load = loads.get(node);
+        if (load == null) return;
+        load.inFlight.decrementAndGet();
+        if (elapsedNanos > load.ewmaNanos) sample(load, elapsedNanos);
+    }
+
+    // Çıkarılan üyenin ölçümleri bırakılır; aynı portla geri dönen üye eski maliyeti devralmaz.
+    public void remove(NodeInfo node) {
+        loads.remove(node);
+    }
+
+    public String stats() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<NodeInfo, Load> e : loads.entrySet()) {
+            if (sb.length() > 0) sb.append(", ");
+            Load load = e.getValue();
+            sb.append(String.format("%d=%d (ewma %.1f ms, in flight %d)", e.getKey().getPort(),
+                    load.reads.get(), load.ewmaNanos / 1e6, load.inFlight.get()));
+        }
+        return sb.toString();
+    }
+
+    private double cost(NodeInfo node) {
+        Load load = loads.get(node);
+        if (load == null) return 0; // hiç ölçülmemiş üye önce denensin
+        double idle = System.nanoTime() - load.updatedNanos;
+        double ewma = load.ewmaNanos * Math.exp(-idle / DECAY_NANOS);
+        return Math.max(ewma, 1) * (load.inFlight.get() + 1);
+    }
+
+    private static void sample(Load load, long latencyNanos) {
+        synchronized (load) {
+            load.ewmaNanos = load.ewmaNanos == 0 ? latencyNanos : ALPHA * latencyNanos + (1 - ALPHA) * load.ewmaNanos;
+            load.updatedNanos = System.nanoTime();
+        }
+    }
+
+    private Load load(NodeInfo node) {
+        return loads.computeIfAbsent(node, k -> new Load());
+    }
+
+    private static final class Load {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicLong reads = new AtomicLong();
+        volatile double ewmaNanos;
+        volatile long updatedNanos;
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.family;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import family.NodeInfo;
+import family.StoreResult;
+import family.StoredMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bir üye aileden çıkarılınca onun tuttuğu mesajlar TOLERANCE'ın altına düşer. Bu servis konum
+// haritasını tarar, çıkarılmış bir sahibi olan ve canlı replika sayısı yetersiz kalan ID'leri bulur,
+// her birini hayatta kalan bir kopyadan (önce liderin diski) yeni bir üyeye kopyalar ve haritayı/günlüğü
+// günceller. Aynı anda en fazla concurrency kopya yolda olur; bytesPerSecond > 0 ise bant genişliği sınırlanır.
+// Taramalar tek bir thread'de sırayla çalışır; tarama sürerken gelen yeni çıkarmalar bir sonraki taramaya katılır.
+// Onarılamayan ID'ler (hedef yok, okunamadı, RPC hatası) RETRY_DELAY_SEC sonra yeniden denenir; MAX_ATTEMPTS
+// denemeden sonra bir sonraki taramaya (yeni bir üye çıkarılmasına) kadar bırakılır.
+public class RepairService {
+
+    private static final long RETRY_DELAY_SEC = 5;
+    private static final int MAX_ATTEMPTS = 5;
+
+    // Kopyalamanın NodeMain'e bağlı kısımları: içeriği okumak, yerleşimi seçmek ve sonucu kaydetmek.
+    public interface Copies {
+        // Önce liderin yerel kopyası, yoksa verilen canlı sahipler; bulunamazsa null.
+        String read(int id, List<NodeInfo> holders);
+
+        // Yeni replika için tercih sırasıyla adaylar (lider hariç).
+        List<NodeInfo> placement(int id);
+
+        // Girdi hâlâ expected ise lider hariç replika listesini haritaya ve günlüğe yazar; kontrol ve yazma
+        // aynı konum kilidi altında yapılır. Arada yeni bir SET girdiyi değiştirdiyse false döner.
+        boolean recordIfUnchanged(int id, long expected, List<NodeInfo> replicas, String content);
+    }
+
+    private final NodeRegistry registry;
+    private final LocationIndex index;
+    private final NodeInfo self;
+    private final Copies copies;
+    private final int tolerance;
+    private final long deadlineMs;
+    private final CompletableFuture<?> ready;
+    private final int concurrency;
+    private final Semaphore inFlight;
+    private final RateLimiter bandwidth;
+
+    private final ScheduledExecutorService scanner = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread t = new Thread(task, "RepairService");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean scanQueued = new AtomicBoolean();
+    // Onarılamamış ID -> başarısız deneme sayısı; retryQueue bir sonraki yeniden denemeyi bekleyenler
+    private final ConcurrentHashMap<Integer, Integer> attempts = new ConcurrentHashMap<>();
+    private final Set<Integer> retryQueue = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean retryQueued = new AtomicBoolean();
+
+    private final AtomicLong underReplicated = new AtomicLong();
+    private final AtomicLong repaired = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong(); // denemeler tükendiği için bir sonraki taramaya bırakılan mesajlar
+    private final AtomicLong scanRepaired = new AtomicLong();
+    private final AtomicLong scanBytes = new AtomicLong();
+    private volatile long scanStartedNanos;
+    private volatile long scanFinishedNanos;
+
+    public RepairService(NodeRegistry registry, LocationIndex index, NodeInfo self, Copies copies, int tolerance,
+                         long deadlineMs, CompletableFuture<?> ready, int concurrency, long bytesPerSecond) {
+        this.registry = registry;
+        this.index = index;
+        this.self = self;
+        this.copies = copies;
+        this.tolerance = tolerance;
+        this.deadlineMs = deadlineMs;
+        this.ready = ready;
+        this.concurrency = Math.max(1, concurrency);
+        this.inFlight = new Semaphore(this.concurrency);
+        this.bandwidth = bytesPerSecond > 0 ? RateLimiter.create(bytesPerSecond) : null;
+    }
+
+    public void memberRemoved(NodeInfo node) {
+        System.out.printf("Onarım: %d düğümü çıkarıldı, eksik replikalar taranacak.%n", node.getPort());
+        if (scanQueued.compareAndSet(false, true)) {
+            scanner.execute(this::scan);
+        }
+    }
+
+    private void scan() {
+        scanQueued.set(false);
+        ready.join(); // Lazy kurtarmada harita tamamen yüklenmeden tarama eksik kalır
+
+        int desired = Math.min(tolerance, members().size());
+        boolean[] live = liveSlots();
+        // Bekleyen yeniden denemeler bu taramada zaten bulunur
+        retryQueue.clear();
+        attempts.clear();
+
+        // Segment kilidi altında RPC yapılmaz: önce ID'ler toplanır, kopyalama sonra yapılır
+        int[][] found = new int[1][256];
+        int[] count = new int[1];
+        for (int segment = 0; segment < index.segmentCount(); segment++) {
+            index.forEach(segment, (id, packed) -> {
+                if (needsRepair(id, packed, live, desired)) {
+                    if (count[0] == found[0].length) found[0] = Arrays.copyOf(found[0], count[0] * 2);
+                    found[0][count[0]++] = id;
+                }
+            });
+        }
+
+        underReplicated.set(count[0]);
+        scanRepaired.set(0);
+        scanBytes.set(0);
+        scanStartedNanos = System.nanoTime();
+        scanFinishedNanos = 0;
+        System.out.printf("Onarım: %d mesajın replikası eksik.%n", count[0]);
+
+        for (int i = 0; i < count[0]; i++) {
+            try {
+                repair(found[0][i], desired);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.printf("Onarım: %d mesajı kopyalanamadı: %s%n", found[0][i], e.getMessage());
+                retryLater(found[0][i]);
+            }
+        }
+
+        // Yoldaki kopyaların bitmesini bekle ki süre/hız doğru ölçülsün
+        inFlight.acquireUninterruptibly(concurrency);
+        inFlight.release(concurrency);
+        scanFinishedNanos = System.nanoTime();
+        System.out.printf("Onarım taraması bitti: %s%n", stats());
+    }
+
+    private boolean needsRepair(int id, long packed, boolean[] live, int desired) {
+        int holders = index.holderCount(id, packed);
+        int alive = 0;
+        boolean lost = false;
+        for (int i = 0; i < holders; i++) {
+            int slot = index.holderSlot(id, packed, i);
+            if (slot < live.length && !live[slot]) {
+                lost = true;
+            } else if (registry.nodeAt(slot).getPort() != self.getPort()) {
+                alive++;
+            }
+        }
+        return lost && alive < desired;
+    }
+
+    private void repair(int id, int desired) throws InterruptedException {
+        long packed = index.get(id);
+        List<NodeInfo> alive = liveHolders(id, packed);
+        int needed = desired - alive.size();
+        if (needed <= 0) {
+            attempts.remove(id);
+            underReplicated.decrementAndGet(); // tarama ile onarım arasında yeniden yazılmış
+            return;
+        }
+
+        List<NodeInfo> targets = new ArrayList<>(needed);
+        for (NodeInfo candidate : copies.placement(id)) {
+            if (targets.size() == needed) break;
+            if (!alive.contains(candidate) && registry.contains(candidate)) targets.add(candidate);
+        }
+        if (targets.isEmpty()) {
+            retryLater(id); // kopya konacak boş üye yok
+            return;
+        }
+
+        String content = copies.read(id, alive);
+        if (content == null) {
+            System.err.printf("Onarım: %d mesajının hiçbir kopyası okunamadı.%n", id);
+            retryLater(id);
+            return;
+        }
+
+        int bytes = content.getBytes(StandardCharsets.UTF_8).length;
+        if (bandwidth != null) bandwidth.acquire(Math.max(1, bytes) * targets.size());
+        inFlight.acquire();
+        copy(id, packed, desired, alive, targets, content, bytes);
+    }
+
+    private void copy(int id, long packed, int desired, List<NodeInfo> alive, List<NodeInfo> targets,
+                      String content, int bytes) {
+        StoredMessage msg = StoredMessage.newBuilder().setId(id).setText(content).build();
+        List<ListenableFuture<StoreResult>> calls = new ArrayList<>(targets.size());
+        for (NodeInfo target : targets) {
+            calls.add(registry.channels().futureStub(target)
+                    .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                    .store(msg));
+        }
+
+        Futures.addCallback(Futures.successfulAsList(calls), new FutureCallback<List<StoreResult>>() {
+            @Override
+            public void onSuccess(List<StoreResult> results) {
+                try {
+                    List<NodeInfo> replicas = new ArrayList<>(alive);
+                    for (int i = 0; i < results.size(); i++) {
+                        StoreResult result = results.get(i);
+                        if (result != null && result.getSuccess()) replicas.add(targets.get(i));
+                    }
+                    int copied = replicas.size() - alive.size();
+                    if (copied == 0) {
+                        retryLater(id);
+                        return;
+                    }
+
+                    if (!copies.recordIfUnchanged(id, packed, replicas, content)) {
+                        // Kopyalama sürerken yeni bir SET geldi; hedeflere eski değer yazılmış olabilir,
+                        // güncel değer tarama thread'inde yeniden gönderilir (harita SET'in kaydıyla kalır)
+                        scanner.execute(() -> refresh(id, replicas.subList(alive.size(), replicas.size())));
+                    }
+                    scanBytes.addAndGet((long) bytes * copied);
+                    if (replicas.size() < desired) {
+                        // Kısmi kopya: ilerleme haritaya yazıldı, eksik kalan replikalar yeniden denenir
+                        retryLater(id);
+                        return;
+                    }
+                    attempts.remove(id);
+                    underReplicated.decrementAndGet();
+                    repaired.incrementAndGet();
+                    scanRepaired.incrementAndGet();
+                } finally {
+                    inFlight.release();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                inFlight.release();
+                retryLater(id);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void retryLater(int id) {
+        if (attempts.merge(id, 1, Integer::sum) >= MAX_ATTEMPTS) {
+            attempts.remove(id);
+            failed.incrementAndGet();
+            underReplicated.decrementAndGet();
+            System.err.printf("Onarım: %d mesajı %d denemede onarılamadı, bir sonraki taramaya bırakıldı.%n",
+                    id, MAX_ATTEMPTS);
+            return;
+        }
+        retryQueue.add(id);
+        if (retryQueued.compareAndSet(false, true)) {
+            scanner.schedule(this::retryFailed, RETRY_DELAY_SEC, TimeUnit.SECONDS);
+        }
+    }
+
+    private void retryFailed() {
+        retryQueued.set(false);
+        int desired = Math.min(tolerance, members().size());
+        for (Integer id : new ArrayList<>(retryQueue)) {
+            if (!retryQueue.remove(id)) continue; // arada yeni bir tarama başladı
+            if (index.get(id) == LocationIndex.ABSENT) {
+                attempts.remove(id);
+                underReplicated.decrementAndGet();
+                continue;
+            }
+            try {
+                repair(id, desired);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.printf("Onarım: %d mesajı kopyalanamadı: %s%n", id, e.getMessage());
+                retryLater(id);
+            }
+        }
+    }
+
+    private void refresh(int id, List<NodeInfo> targets) {
+        String content = copies.read(id, liveHolders(id, index.get(id)));
+        if (content == null) return;
+        StoredMessage msg = StoredMessage.newBuilder().setId(id).setText(content).build();
+        for (NodeInfo target : targets) {
+            try {
+                registry.channels().blockingStub(target)
+                        .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                        .store(msg);
+            } catch (RuntimeException e) {
+                System.err.printf("Onarım: %d mesajı %d düğümünde güncellenemedi: %s%n",
+                        id, target.getPort(), e.getMessage());
+            }
+        }
+    }
+
+    private List<NodeInfo> liveHolders(int id, long packed) {
+        int holders = index.holderCount(id, packed);
+        List<NodeInfo> alive = new ArrayList<>(holders);
+        for (int i = 0; i < holders; i++) {
+            NodeInfo n = registry.nodeAt(index.holderSlot(id, packed, i));
+            if (n.getPort() != self.getPort() && registry.contains(n)) alive.add(n);
+        }
+        return alive;
+    }
+
+    private boolean[] liveSlots() {
+        boolean[] live = new boolean[registry.slotCount()];
+        for (int slot = 0; slot < live.length; slot++) {
+            live[slot] = registry.contains(registry.nodeAt(slot));
+        }
+        return live;
+    }
+
+    private List<NodeInfo> members() {
+        List<NodeInfo> members = new ArrayList<>();
+        for (NodeInfo n : registry.snapshot()) {
+            if (n.getPort() != self.getPort()) members.add(n);
+        }
+        return members;
+    }
+
+    public String stats() {
+        long started = scanStartedNanos;
+        long finished = scanFinishedNanos;
+        double seconds = started == 0 ? 0 : ((finished != 0 ? finished : System.nanoTime()) - started) / 1e9;
+        double msgRate = seconds > 0 ? scanRepaired.get() / seconds : 0;
+        double kbRate = seconds > 0 ? scanBytes.get() / 1024.0 / seconds : 0;
+        return String.format("under-replicated %d, repaired %d, failed %d, last scan %.0f msg/s (%.1f KB/s)",
+                underReplicated.get(), repaired.get(), failed.get(), msgRate, kbRate);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.family;
+
+import family.NodeInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Tek bir SET için replika onaylarını toplar.
+// quorum(): istenen sayıda onay geldiğinde (ya da artık gelemeyeceği anlaşıldığında) tamamlanır.
+// completion(): tüm hedeflerden cevap (veya deadline) geldiğinde tamamlanır.
+public class ReplicationRound {
+
+    private final List<NodeInfo> confirmed = new ArrayList<>();
+    private final CompletableFuture<List<NodeInfo>> quorum = new CompletableFuture<>();
+    private final CompletableFuture<List<NodeInfo>> completion = new CompletableFuture<>();
+    private final int required;
+    private int remaining;
+
+    public ReplicationRound(int targetCount, int required) {
+        this.remaining = targetCount;
+        this.required = Math.min(required, targetCount);
+        if (targetCount == 0 || this.required <= 0) {
+            quorum.complete(List.of());
+        }
+        if (targetCount == 0) {
+            completion.complete(List.of());
+        }
+    }
+
+    public void ack(NodeInfo node) {
+        List<NodeInfo> snapshot;
+        boolean last;
+        synchronized (this) {
+            confirmed.add(node);
+            remaining--;
+            snapshot = List.copyOf(confirmed);
+            last = remaining == 0;
+        }
+        if (snapshot.size() >= required) {
+            quorum.complete(snapshot);
+        }
+        if (last) {
+            quorum.complete(snapshot);
+            completion.complete(snapshot);
+        }
+    }
+
+    public void fail() {
+        List<NodeInfo> snapshot;
+        boolean last;
+        synchronized (this) {
+            remaining--;
+            snapshot = List.copyOf(confirmed);
+            last = remaining == 0;
+        }
+        // Kalan hedeflerin hepsi onaylasa bile quorum dolmayacaksa beklemeyi bırak
+        if (last || snapshot.size() + remaining < required) {
+            quorum.complete(snapshot);
+        }
+        if (last) {
+            completion.complete(snapshot);
+        }
+    }
+
+    // Quorum kadar onayı bekler; süre dolarsa o ana kadar gelenleri döner.
+    public List<NodeInfo> awaitQuorum(long timeout, TimeUnit unit) {
+        try {
+            return quorum.get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ignored) {
+        }
+        return confirmed();
+    }
+
+    public synchronized List<NodeInfo> confirmed() {
+        return List.copyOf(confirmed);
+    }
+
+    public int required() {
+        return required;
+    }
+
+    public CompletableFuture<List<NodeInfo>> completion() {
+        return completion;
+    }
+}
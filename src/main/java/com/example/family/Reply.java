@@ -0,0 +1,34 @@
+package com.example.family;
+
+// Metin protokolünde bir komutun cevabı: ya bir metin satırı ya da doğrudan
+// dosyadan gönderilecek bir bölge (zero-copy GET). Her iki durumda da sonuna '\n' eklenir.
+public final class Reply {
+
+    private final String text;
+    private final FileRegion file;
+
+    private Reply(String text, FileRegion file) {
+        this.text = text;
+        this.file = file;
+    }
+
+    public static Reply text(String text) {
+        return text == null ? null : new Reply(text, null);
+    }
+
+    public static Reply file(FileRegion file) {
+        return new Reply(null, file);
+    }
+
+    public boolean isFile() {
+        return file != null;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public FileRegion file() {
+        return file;
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.family;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+// Mesajları tek tek dosyalar yerine sırayla büyüyen segment dosyalarına ekler.
+// Kayıt formatı: [id:int][length:int][crc32:int][payload:length byte]
+// Her ID'nin son kaydının yeri bellekteki index'te tutulur; okuma tek bir konumlu read'dir.
+// Açılışta segmentler baştan taranıp index yeniden kurulur. Yalnızca son (aktif) segmentin sonundaki
+// yarım kayıt kesilir; daha eski segmentlerde checksum'ı tutmayan kayıt atlanır, yapısı okunamayan
+// segment ise açılışı durdurur (kesmek arkasındaki geçerli kayıtları da silerdi).
+// readMapped ile kayıtlar memory-mapped segmentlerden kopyasız okunabilir; aynı anda en fazla
+// maxMappedSegments segment map'li tutulur (LRU). Aktif segment büyüdükçe her okumada yeniden map'lenmez:
+// map'in sonrasındaki kuyruk REMAP_CHUNK kadar büyüyene dek konumlu read ile okunur.
+public class SegmentLog implements Closeable {
+
+    public static final int HEADER_SIZE = 12;
+    static final long REMAP_CHUNK = 4L << 20;
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final long maxSegmentBytes;
+    private final ConcurrentHashMap<Integer, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedByteBuffer> mapped;
+
+    private FileChannel active;
+    private volatile int activeNumber; // mappedRegion kilitsiz okur
+    private long activeSize;
+
+    public SegmentLog(Path dir, long maxSegmentBytes) throws IOException {
+        this(dir, maxSegmentBytes, 16);
+    }
+
+    public SegmentLog(Path dir, long maxSegmentBytes, int maxMappedSegments) throws IOException {
+        this.dir = dir;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.mapped = new LinkedHashMap<Integer, MappedByteBuffer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+                // Çıkarılan mapping'i GC serbest bırakır; hâlâ kullanılan dilimler geçerli kalır
+                return size() > maxMappedSegments;
+            }
+        };
+        Files.createDirectories(dir);
+        recover();
+    }
+
+    public synchronized void append(int id, byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (activeSize > 0 && activeSize + recordSize > maxSegmentBytes) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        record.putInt(id).putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        record.flip();
+
+        long position = activeSize;
+        while (record.hasRemaining()) {
+            position += active.write(record, position);
+        }
+
+        index.put(id, new Location(activeNumber, activeSize + HEADER_SIZE, payload.length));
+        activeSize = position;
+    }
+
+    public byte[] read(int id) throws IOException {
+        Location location = index.get(id);
+        if (location == null) {
+            throw new FileNotFoundException("Message " + id + " not found in " + dir);
+        }
+
+        return readAt(location);
+    }
+
+    private byte[] readAt(Location location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(location.length);
+        FileChannel channel = segments.get(location.segment);
+        long position = location.offset;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) throw new IOException("Segment " + location.segment + " beklenenden kısa");
+            position += n;
+        }
+        return buffer.array();
+    }
+
+    // Kayıtları tek bir yazımla ekler ve force ile diske kalıcı hale getirir (group commit).
+    // Index ancak force'tan sonra güncellenir; okuyucular yalnızca kalıcı kayıtları görür.
+    public synchronized void appendDurable(List<PendingRecord> records) throws IOException {
+        List<Location> locations = new ArrayList<>(records.size());
+        int start = 0;
+
+        while (start < records.size()) {
+            // Aktif segmente sığan kayıtları tek buffer'da topla
+            long size = activeSize;
+            int end = start;
+            long bytes = 0;
+            while (end < records.size()) {
+                int recordSize = HEADER_SIZE + records.get(end).payload.length;
+                // Segmentteki ilk kayıt (boş segment, batch'te henüz kayıt yok) sınırdan büyük olsa da yazılır
+                if (size + bytes > 0 && size + bytes + recordSize > maxSegmentBytes) break;
+                bytes += recordSize;
+                end++;
+            }
+            if (end == start) {
+                active.force(false);
+                roll();
+                continue;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+            long offset = activeSize;
+            for (int i = start; i < end; i++) {
+                byte[] payload = records.get(i).payload;
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                buffer.putInt(records.get(i).id).putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+                locations.add(new Location(activeNumber, offset + HEADER_SIZE, payload.length));
+                offset += HEADER_SIZE + payload.length;
+            }
+            buffer.flip();
+
+            long position = activeSize;
+            while (buffer.hasRemaining()) {
+                position += active.write(buffer, position);
+            }
+            activeSize = position;
+            start = end;
+        }
+
+        active.force(false);
+
+        for (int i = 0; i < records.size(); i++) {
+            index.put(records.get(i).id, locations.get(i));
+        }
+    }
+
+    // Kaydı map'li segmentten salt okunur bir dilim olarak döner (kopya yok, syscall yok).
+    public ByteBuffer readMapped(int id) throws IOException {
+        Location location = index.get(id);
+        if (location == null) {
+            throw new FileNotFoundException("Message " + id + " not found in " + dir);
+        }
+
+        MappedByteBuffer region = mappedRegion(location.segment, location.offset + location.length);
+        if (region == null) {
+            return ByteBuffer.wrap(readAt(location)).asReadOnlyBuffer(); // aktif segmentin henüz map'lenmemiş kuyruğu
+        }
+        return region.slice((int) location.offset, location.length).asReadOnlyBuffer();
+    }
+
+    // Segmentin map'i yoksa ya da kaydı kapsamıyorsa map'ler. Aktif segmentte map'in sonundan bu yana
+    // REMAP_CHUNK'tan az büyüme varsa null döner (kuyruk konumlu read ile okunur); böylece sürekli yazılan
+    // segment kayıt başına değil en fazla REMAP_CHUNK başına bir kez yeniden map'lenir. Map dosya boyunu
+    // aşamaz: kanal yazılabilir açık olduğu için map dosyayı sıfırlarla uzatırdı.
+    private MappedByteBuffer mappedRegion(int segment, long end) throws IOException {
+        synchronized (mapped) {
+            MappedByteBuffer region = mapped.get(segment);
+            if (region == null || region.capacity() < end) {
+                FileChannel channel = segments.get(segment);
+                long size = channel.size();
+                if (region != null && segment == activeNumber && size - region.capacity() < REMAP_CHUNK) {
+                    return null;
+                }
+                region = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                mapped.put(segment, region);
+            }
+            return region;
+        }
+    }
+
+    // Kaydın segment içindeki yerini döner; soket'e transferTo ile gönderilebilir.
+    public FileRegion region(int id) throws FileNotFoundException {
+        Location location = index.get(id);
+        if (location == null) {
+            throw new FileNotFoundException("Message " + id + " not found in " + dir);
+        }
+        return new FileRegion(segments.get(location.segment), location.offset, location.length);
+    }
+
+    public boolean contains(int id) {
+        return index.containsKey(id);
+    }
+
+    public void forEachId(IntConsumer action) {
+        for (Integer id : index.keySet()) {
+            action.accept(id);
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel channel : segments.values()) {
+            channel.close();
+        }
+        segments.clear();
+        synchronized (mapped) {
+            mapped.clear();
+        }
+    }
+
+    private void roll() throws IOException {
+        activeNumber++;
+        active = open(activeNumber);
+        activeSize = 0;
+    }
+
+    private FileChannel open(int number) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(number, channel);
+        return channel;
+    }
+
+    private Path segmentPath(int number) {
+        return dir.resolve(String.format("%s%08d%s", PREFIX, number, SUFFIX));
+    }
+
+    private void recover() throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                numbers.add(Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        numbers.sort(null);
+
+        if (numbers.isEmpty()) {
+            activeNumber = 1;
+            active = open(activeNumber);
+            activeSize = 0;
+            return;
+        }
+
+        for (int i = 0; i < numbers.size(); i++) {
+            int number = numbers.get(i);
+            boolean last = i == numbers.size() - 1;
+            FileChannel channel = open(number);
+            long validEnd = scan(number, channel, last);
+            if (validEnd < channel.size()) {
+                System.err.printf("Segment %d: %d byte bozuk/yarım kayıt kesildi.%n", number, channel.size() - validEnd);
+                channel.truncate(validEnd);
+            }
+            active = channel;
+            activeNumber = number;
+            activeSize = validEnd;
+        }
+        System.out.printf("📁 %d segment tarandı, %d mesaj yüklendi.%n", numbers.size(), index.size());
+    }
+
+    // Segmenti baştan okuyup index'e ekler; geçerli son kaydın bittiği konumu döner.
+    // tail: yazımı yarıda kalmış olabilecek son segment; ilk bozuk kayıtta durulur ve oradan kesilir.
+    // Kapanmış segmentlerde checksum'ı tutmayan kayıt atlanır; uzunluk alanı okunamıyorsa sonraki kayıtların
+    // yeri bilinemez, segment kesilmeden açılış hata ile durur.
+    private long scan(int number, FileChannel channel, boolean tail) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int id = header.getInt();
+            int length = header.getInt();
+            int checksum = header.getInt();
+
+            if (length < 0 || position + HEADER_SIZE + length > size) {
+                if (tail) break;
+                throw new IOException(String.format("Segment %d bozuk: %d konumundaki kaydın uzunluğu (%d) geçersiz",
+                        number, position, length));
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            long p = position + HEADER_SIZE;
+            while (payload.hasRemaining()) {
+                p += channel.read(payload, p);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                if (tail) break;
+                System.err.printf("Segment %d: %d konumundaki kayıt (id %d) bozuk, atlandı.%n", number, position, id);
+            } else {
+                index.put(id, new Location(number, position + HEADER_SIZE, length));
+            }
+            position += HEADER_SIZE + length;
+        }
+        if (!tail && position < size) {
+            throw new IOException(String.format("Segment %d bozuk: sonunda %d byte yarım kayıt var", number, size - position));
+        }
+        return position;
+    }
+
+    public static final class PendingRecord {
+        final int id;
+        final byte[] payload;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        public PendingRecord(int id, byte[] payload) {
+            this.id = id;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Location {
+        final int segment;
+        final long offset;
+        final int length;
+
+        Location(int segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.family;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import family.NodeInfo;
+import family.StoreResult;
+import family.StoreSummary;
+import family.StoredMessage;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Üye başına sınırlı bir yazma kuyruğu tutar ve replikaları bu kuyruktan gönderir.
+// Kuyrukta tek yazma varsa unary Store, birden fazla varsa client-streaming StoreStream kullanılır.
+// StoreStream'de isReady/onReady ile gRPC akış kontrolüne uyulur; yavaş bir üye için lider
+// en fazla maxPending kadar mesaj tutar, fazlası o replika için başarısız sayılır. Bir stream en fazla
+// MAX_STREAM_BATCH mesaj taşır ve kapanır; deadline böylece sınırlı bir batch'i kapsar, kuyrukta kalanlar
+// yeni bir stream ile gönderilir. Aileden çıkarılan üyenin kuyruğu düşürülür.
+public class StreamingReplicator {
+
+    static final int MAX_STREAM_BATCH = 256;
+
+    private final ChannelPool channels;
+    private final long deadlineMs;
+    private final int maxPending;
+    private final ConcurrentHashMap<NodeInfo, MemberQueue> queues = new ConcurrentHashMap<>();
+
+    public StreamingReplicator(ChannelPool channels, long deadlineMs, int maxPending) {
+        this.channels = channels;
+        this.deadlineMs = deadlineMs;
+        this.maxPending = maxPending;
+    }
+
+    public void send(NodeInfo target, StoredMessage msg, ReplicationRound round) {
+        MemberQueue queue = queues.computeIfAbsent(target, MemberQueue::new);
+
+        if (!queue.pending.offer(new PendingWrite(msg, round))) {
+            System.err.printf("   -> %d düğümünün kuyruğu dolu, replika atlandı (id %d).%n", target.getPort(), msg.getId());
+            round.fail();
+            return;
+        }
+        drain(queue);
+    }
+
+    // Üye aileden çıktı: bekleyen yazmaları başarısız say ve kuyruğu bırak.
+    public void remove(NodeInfo target) {
+        MemberQueue queue = queues.remove(target);
+        if (queue == null) return;
+        synchronized (queue) {
+            queue.closed = true;
+        }
+        failPending(queue);
+    }
+
+    public int pending(NodeInfo target) {
+        MemberQueue queue = queues.get(target);
+        return queue == null ? 0 : queue.pending.size();
+    }
+
+    private void drain(MemberQueue queue) {
+        synchronized (queue) {
+            if (queue.closed) {
+                // remove ile yarışıp kapanmış kuyruğa eklenen yazmalar
+                failPending(queue);
+                return;
+            }
+            if (queue.draining || queue.pending.isEmpty()) return;
+            queue.draining = true;
+        }
+
+        if (queue.pending.size() > 1) {
+            sendStream(queue);
+        } else {
+            sendUnary(queue);
+        }
+    }
+
+    private void failPending(MemberQueue queue) {
+        PendingWrite write;
+        while ((write = queue.pending.poll()) != null) {
+            write.round.fail();
+        }
+    }
+
+    private void finished(MemberQueue queue) {
+        synchronized (queue) {
+            queue.draining = false;
+        }
+        drain(queue);
+    }
+
+    private void sendUnary(MemberQueue queue) {
+        PendingWrite write = queue.pending.poll();
+        if (write == null) {
+            finished(queue);
+            return;
+        }
+
+        NodeInfo target = queue.target;
+        ListenableFuture<StoreResult> future = channels.futureStub(target)
+                .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                .store(write.msg);
+
+        Futures.addCallback(future, new FutureCallback<StoreResult>() {
+            @Override
+            public void onSuccess(StoreResult result) {
+                if (result.getSuccess()) {
+                    System.out.printf("   -> %d düğümüne kaydedildi. %n", target.getPort());
+                    write.round.ack(target);
+                } else {
+                    System.err.printf("   -> %d düğümüne kaydedilemedi: %s%n", target.getPort(), result.getMessage());
+                    write.round.fail();
+                }
+                finished(queue);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                System.err.printf("   -> %d düğümüne ulaşılamadı: %s%n", target.getPort(), t.getMessage());
+                write.round.fail();
+                finished(queue);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void sendStream(MemberQueue queue) {
+        NodeInfo target = queue.target;
+        List<PendingWrite> sent = new ArrayList<>();
+
+        channels.asyncStub(target)
+                .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                .storeStream(new ClientResponseObserver<StoredMessage, StoreSummary>() {
+                    private boolean halfClosed;
+                    private int count;
+
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<StoredMessage> requestStream) {
+                        // gRPC onReady'yi sırayla çağırır; buffer dolunca (isReady=false) gönderim durur
+                        requestStream.setOnReadyHandler(() -> {
+                            if (halfClosed) return;
+                            while (requestStream.isReady()) {
+                                // Batch dolunca stream kapanır; yeni gelenler sonraki stream'e kalır
+                                PendingWrite write = count < MAX_STREAM_BATCH ? queue.pending.poll() : null;
+                                if (write == null) {
+                                    halfClosed = true;
+                                    requestStream.onCompleted();
+                                    return;
+                                }
+                                synchronized (sent) {
+                                    sent.add(write);
+                                }
+                                count++;
+                                requestStream.onNext(write.msg);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onNext(StoreSummary summary) {
+                        Set<Integer> failed = new HashSet<>(summary.getFailedIdsList());
+                        System.out.printf("   -> %d mesaj %d düğümüne stream ile kaydedildi. %n", summary.getStored(), target.getPort());
+                        synchronized (sent) {
+                            for (PendingWrite write : sent) {
+                                if (failed.contains(write.msg.getId())) {
+                                    write.round.fail();
+                                } else {
+                                    write.round.ack(target);
+                                }
+                            }
+                            sent.clear();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        System.err.printf("   -> %d düğümüne stream başarısız: %s%n", target.getPort(), t.getMessage());
+                        synchronized (sent) {
+                            sent.forEach(write -> write.round.fail());
+                            sent.clear();
+                        }
+                        // Üyeye ulaşılamıyorsa kuyrukta bekleyenleri de düşür, yoksa sonsuz yeniden deneme olur
+                        failPending(queue);
+                        finished(queue);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        finished(queue);
+                    }
+                });
+    }
+
+    private class MemberQueue {
+        final NodeInfo target;
+        final BlockingQueue<PendingWrite> pending = new ArrayBlockingQueue<>(maxPending);
+        boolean draining;
+        boolean closed;
+
+        MemberQueue(NodeInfo target) {
+            this.target = target;
+        }
+    }
+
+    private static class PendingWrite {
+        final StoredMessage msg;
+        final ReplicationRound round;
+
+        PendingWrite(StoredMessage msg, ReplicationRound round) {
+            this.msg = msg;
+            this.round = round;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.family;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// Çalışan bir lidere (TCP 6666) 1 KB, 64 KB ve 1 MB'lık mesajlar yazıp tekrar tekrar GET eder,
+// saniyedeki GET sayısını ve MB/s değerini yazdırır. Liderin ZERO_COPY_GET ayarı açık/kapalıyken
+// iki kez çalıştırılarak transferTo yolu ile normal okuma yolu karşılaştırılır.
+// Kullanım: ZeroCopyBenchmark [host] [port] [GET sayısı]
+public class ZeroCopyBenchmark {
+
+    private static final int[] SIZES = {1024, 64 * 1024, 1024 * 1024};
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6666;
+        int gets = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        try (Socket socket = new Socket(host, port);
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), false);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 20)) {
+
+            System.out.printf("%-10s %-8s %-12s %-10s%n", "size", "gets", "gets/sec", "MB/s");
+            int id = 2_000_000;
+
+            for (int size : SIZES) {
+                String payload = "x".repeat(size);
+                out.println("SET " + id + " " + payload);
+                out.flush();
+                expect(in.readLine(), "OK");
+
+                // Isınma
+                for (int i = 0; i < Math.min(50, gets); i++) {
+                    out.println("GET " + id);
+                    out.flush();
+                    expectLength(in.readLine(), size);
+                }
+
+                long start = System.nanoTime();
+                for (int i = 0; i < gets; i++) {
+                    out.println("GET " + id);
+                    out.flush();
+                    expectLength(in.readLine(), size);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.printf("%-10s %-8d %-12.0f %-10.1f%n",
+                        label(size), gets, gets / seconds, (double) gets * size / seconds / (1024 * 1024));
+                id++;
+            }
+        }
+    }
+
+    private static void expect(String actual, String expected) throws IOException {
+        if (!expected.equals(actual)) throw new IOException("Beklenen " + expected + ", gelen " + actual);
+    }
+
+    private static void expectLength(String actual, int size) throws IOException {
+        if (actual == null || actual.length() != size) {
+            throw new IOException("Beklenen " + size + " byte, gelen " + (actual == null ? "null" : actual.length()));
+        }
+    }
+
+    private static String label(int size) {
+        return size >= 1024 * 1024 ? (size / (1024 * 1024)) + " MB" : (size / 1024) + " KB";
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.family;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+
+    @Test
+    void busyWhenFullAndAdmitsAgainAfterRelease() {
+        AdmissionControl admission = new AdmissionControl(4, false);
+        assertEquals(3, admission.admit(3, true));
+        assertEquals(0, admission.admit(2, true)); // BUSY modunda beklemez
+        assertEquals(3, admission.depth());
+
+        admission.release(3);
+        assertEquals(2, admission.admit(2, true));
+        assertTrue(admission.stats().contains("admitted 5, busy 2"), admission.stats());
+    }
+
+    @Test
+    void batchLargerThanCapacityTakesTheWholeCapacity() {
+        AdmissionControl admission = new AdmissionControl(4, false);
+        assertEquals(4, admission.admit(10, false));
+        assertEquals(4, admission.depth());
+        admission.release(4);
+        assertEquals(0, admission.depth());
+    }
+
+    @Test
+    void blockModeWaitsForRelease() throws Exception {
+        AdmissionControl admission = new AdmissionControl(2, true);
+        assertEquals(2, admission.admit(2, true));
+        assertEquals(0, admission.admit(1, false)); // bekleyemeyen çağıran (NIO) yine BUSY alır
+
+        CompletableFuture<Integer> waiting = CompletableFuture.supplyAsync(() -> admission.admit(1, true));
+        assertThrows(TimeoutException.class, () -> waiting.get(100, TimeUnit.MILLISECONDS));
+        assertFalse(waiting.isDone());
+
+        admission.release(2);
+        assertEquals(1, waiting.get(5, TimeUnit.SECONDS));
+    }
+}
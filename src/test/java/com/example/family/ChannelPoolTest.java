@@ -0,0 +1,69 @@
+package com.example.family;
+
+import family.MessageId;
+import family.NodeInfo;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChannelPoolTest {
+
+    private static NodeInfo node(int port) {
+        return NodeInfo.newBuilder().setHost("127.0.0.1").setPort(port).build();
+    }
+
+    @Test
+    void unregisteredNodeGetsNoPooledChannel() throws Exception {
+        ChannelPool pool = new ChannelPool(n -> false);
+        NodeInfo removed = node(5599);
+
+        StatusRuntimeException blocking = assertThrows(StatusRuntimeException.class, () -> pool.blockingStub(removed)
+                .withDeadlineAfter(1, TimeUnit.SECONDS)
+                .retrieve(MessageId.newBuilder().setId(1).build()));
+        assertEquals(Status.Code.UNAVAILABLE, blocking.getStatus().getCode());
+
+        ExecutionException future = assertThrows(ExecutionException.class, () -> pool.futureStub(removed)
+                .withDeadlineAfter(1, TimeUnit.SECONDS)
+                .retrieve(MessageId.newBuilder().setId(1).build())
+                .get(5, TimeUnit.SECONDS));
+        assertEquals(Status.Code.UNAVAILABLE, Status.fromThrowable(future.getCause()).getCode());
+
+        assertNull(pool.state(removed));
+    }
+
+    @Test
+    void registeredNodeKeepsItsChannelUntilEvicted() {
+        Set<NodeInfo> members = ConcurrentHashMap.newKeySet();
+        ChannelPool pool = new ChannelPool(members::contains);
+        NodeInfo member = node(5598);
+        members.add(member);
+
+        pool.channel(member);
+        assertNotNull(pool.state(member));
+
+        members.remove(member);
+        pool.evict(member);
+        pool.futureStub(member); // çıkarılmış üyeye giden okuma kanalı yeniden açmamalı
+        assertNull(pool.state(member));
+    }
+
+    @Test
+    void candidatesAreReachableBeforeTheyJoin() {
+        ChannelPool pool = new ChannelPool(n -> false);
+        NodeInfo candidate = node(5597);
+        pool.candidateFutureStub(candidate);
+        assertNotNull(pool.state(candidate));
+        pool.evict(candidate);
+        assertNull(pool.state(candidate));
+    }
+}
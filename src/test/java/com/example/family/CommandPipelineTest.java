@@ -0,0 +1,105 @@
+package com.example.family;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CommandPipelineTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static List<String> texts(List<Reply> replies) {
+        List<String> out = new ArrayList<>();
+        for (Reply r : replies) out.add(r == null ? null : r.text());
+        return out;
+    }
+
+    @Test
+    void repliesComeBackInArrivalOrder() throws Exception {
+        // İlk komut en yavaşı; cevaplar yine de geliş sırasıyla dönmeli
+        CommandPipeline pipeline = new CommandPipeline(line -> {
+            String id = line.split(" ")[1];
+            if (id.equals("1")) sleep(50);
+            return Reply.text("OK " + id);
+        }, executor);
+
+        List<Reply> replies = pipeline.submit(List.of("GET 1", "GET 2", "GET 3")).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("OK 1", "OK 2", "OK 3"), texts(replies));
+    }
+
+    @Test
+    void commandsOnTheSameIdRunInOrder() throws Exception {
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        CommandPipeline pipeline = new CommandPipeline(line -> {
+            if (line.endsWith("a")) sleep(50); // ilk SET yavaş; ikincisi onu geçmemeli
+            applied.add(line);
+            return Reply.text("OK");
+        }, executor);
+
+        pipeline.submit(List.of("SET 7 a", "SET 7 b", "GET 7")).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("SET 7 a", "SET 7 b", "GET 7"), applied);
+    }
+
+    @Test
+    void multiKeyCommandWaitsForEveryKey() throws Exception {
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        CommandPipeline pipeline = new CommandPipeline(line -> {
+            if (line.startsWith("SET 1")) sleep(50);
+            applied.add(line);
+            return Reply.text("OK");
+        }, executor);
+
+        pipeline.submit(List.of("SET 1 a", "SET 2 b", "MGET 1 2")).get(5, TimeUnit.SECONDS);
+        assertEquals("MGET 1 2", applied.get(2));
+    }
+
+    @Test
+    void handlerExceptionBecomesErrorReply() throws Exception {
+        CommandPipeline pipeline = new CommandPipeline(line -> {
+            throw new IllegalStateException("bozuk");
+        }, executor);
+
+        assertEquals(List.of("ERROR bozuk"), texts(pipeline.submit(List.of("GET 1")).get(5, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void fullAdmissionAnswersBusy() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, false);
+        assertEquals(1, admission.admit(1, false)); // kapasiteyi doldur
+        CommandPipeline pipeline = new CommandPipeline(line -> Reply.text("OK"), executor, admission);
+
+        List<Reply> replies = pipeline.submit(List.of("GET 1", " ")).get(5, TimeUnit.SECONDS);
+        assertEquals(CommandPipeline.BUSY, replies.get(0).text());
+        assertNull(replies.get(1));
+    }
+
+    @Test
+    void keysOfParsesEveryCommandShape() {
+        assertEquals(List.of("12"), CommandPipeline.keysOf("SET 12 merhaba dünya"));
+        assertEquals(List.of("1", "2"), CommandPipeline.keysOf("MGET 1 2"));
+        assertEquals(List.of("1", "2"), CommandPipeline.keysOf("MSET 1 a | 2 b c"));
+        assertEquals(List.of(), CommandPipeline.keysOf("STATS"));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
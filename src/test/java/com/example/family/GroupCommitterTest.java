@@ -0,0 +1,49 @@
+package com.example.family;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class GroupCommitterTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void runtimeFailureFailsBatchAndKeepsCommitterAlive() throws IOException {
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        try (SegmentLog log = new SegmentLog(dir, 1 << 20) {
+            @Override
+            public synchronized void appendDurable(List<PendingRecord> records) throws IOException {
+                if (failNext.getAndSet(false)) throw new IllegalStateException("beklenmeyen");
+                super.appendDurable(records);
+            }
+        }) {
+            GroupCommitter committer = new GroupCommitter(log, 8, 100);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                IOException e = assertThrows(IOException.class, () -> committer.append(1, bytes("ilk")));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+
+                // Thread hâlâ çalışıyor olmalı: sonraki kayıt normal şekilde yazılır
+                committer.append(2, bytes("iki"));
+            });
+            assertArrayEquals(bytes("iki"), log.read(2));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.family;
+
+import family.NodeInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashRingTest {
+
+    private static final int VNODES = 128;
+
+    private static NodeInfo node(int port) {
+        return NodeInfo.newBuilder().setHost("127.0.0.1").setPort(port).build();
+    }
+
+    private static List<NodeInfo> members(int count) {
+        List<NodeInfo> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) members.add(node(5555 + i));
+        return members;
+    }
+
+    @Test
+    void placementDependsOnlyOnIdAndMembers() {
+        List<NodeInfo> members = members(5);
+        List<NodeInfo> reversed = new ArrayList<>(members);
+        Collections.reverse(reversed);
+        HashRing ring = new HashRing(1, members, VNODES);
+        HashRing other = new HashRing(2, reversed, VNODES);
+
+        for (int id = 0; id < 1000; id++) {
+            assertEquals(ring.replicas(id, 3, null), other.replicas(id, 3, null), "id " + id);
+        }
+    }
+
+    @Test
+    void replicasAreDistinctAndSkipTheExcludedMember() {
+        List<NodeInfo> members = members(5);
+        NodeInfo leader = members.get(0);
+        HashRing ring = new HashRing(1, members, VNODES);
+
+        for (int id = 0; id < 1000; id++) {
+            List<NodeInfo> replicas = ring.replicas(id, 3, leader);
+            assertEquals(3, replicas.size());
+            assertEquals(3, new HashSet<>(replicas).size());
+            assertFalse(replicas.contains(leader));
+        }
+    }
+
+    @Test
+    void notEnoughMembersGivesAShorterList() {
+        List<NodeInfo> members = members(3);
+        HashRing ring = new HashRing(1, members, VNODES);
+
+        assertEquals(2, ring.replicas(42, 5, members.get(0)).size());
+        assertEquals(3, ring.replicas(42, 5, null).size());
+        assertTrue(new HashRing(1, List.of(), VNODES).replicas(42, 2, null).isEmpty());
+    }
+
+    @Test
+    void longerListExtendsTheShorterOne() {
+        // Şüpheli üyeleri atlamak için fazladan istenen replikalar tercih sırasını bozmamalı
+        HashRing ring = new HashRing(1, members(6), VNODES);
+        for (int id = 0; id < 1000; id++) {
+            assertEquals(ring.replicas(id, 2, null), ring.replicas(id, 4, null).subList(0, 2));
+        }
+    }
+
+    @Test
+    void addingAMemberMovesAboutOneNthOfTheKeys() {
+        List<NodeInfo> members = members(4);
+        HashRing before = new HashRing(1, members, VNODES);
+        members.add(node(5555 + 4));
+        HashRing after = new HashRing(2, members, VNODES);
+
+        int keys = 20_000;
+        int moved = 0;
+        for (int id = 0; id < keys; id++) {
+            NodeInfo owner = after.replicas(id, 1, null).get(0);
+            if (!owner.equals(before.replicas(id, 1, null).get(0))) {
+                moved++;
+                assertEquals(node(5555 + 4), owner, "taşınan anahtar yalnızca yeni üyeye gitmeli");
+            }
+        }
+        // Beklenen 1/5; sanal düğümlerle sapma küçük kalır
+        assertTrue(moved > keys * 0.15 && moved < keys * 0.25, "moved " + moved);
+    }
+
+    @Test
+    void keysSpreadEvenlyAcrossMembers() {
+        List<NodeInfo> members = members(4);
+        HashRing ring = new HashRing(1, members, VNODES);
+        int[] owned = new int[members.size()];
+        int keys = 20_000;
+        for (int id = 0; id < keys; id++) {
+            owned[members.indexOf(ring.replicas(id, 1, null).get(0))]++;
+        }
+        for (int count : owned) {
+            assertTrue(count > keys / 4 * 0.75 && count < keys / 4 * 1.25, Arrays.toString(owned));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.family;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocationIndexTest {
+
+    @Test
+    void putGetRemove() {
+        LocationIndex index = new LocationIndex();
+        index.put(7, new int[] {1, 2});
+        assertArrayEquals(new int[] {1, 2}, index.holderSlots(7));
+        assertEquals(LocationIndex.ABSENT, index.get(8));
+
+        index.put(7, new int[] {3});
+        assertArrayEquals(new int[] {3}, index.holderSlots(7));
+        assertEquals(1, index.size());
+
+        index.remove(7);
+        assertEquals(LocationIndex.ABSENT, index.get(7));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void emptyHolderListIsNotAbsent() {
+        LocationIndex index = new LocationIndex();
+        index.put(1, new int[0]);
+        assertNotEquals(LocationIndex.ABSENT, index.get(1));
+        assertEquals(0, index.holderSlots(1).length);
+    }
+
+    @Test
+    void moreThanFourHoldersUseOverflow() {
+        LocationIndex index = new LocationIndex();
+        index.put(1, new int[] {0, 1, 2, 3, 4, 5});
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5}, index.holderSlots(1));
+
+        index.put(1, new int[] {4});
+        assertArrayEquals(new int[] {4}, index.holderSlots(1));
+    }
+
+    @Test
+    void reservedKeyValueIsStoredSeparately() {
+        LocationIndex index = new LocationIndex();
+        assertTrue(index.putIfAbsent(Integer.MIN_VALUE, new int[] {2}));
+        assertFalse(index.putIfAbsent(Integer.MIN_VALUE, new int[] {3}));
+        assertArrayEquals(new int[] {2}, index.holderSlots(Integer.MIN_VALUE));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void backwardShiftDeleteKeepsRemainingKeysReachable() {
+        LocationIndex index = new LocationIndex();
+        Random random = new Random(42);
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(random.ints(200_000).boxed().toList()));
+        ids.remove(Integer.valueOf(Integer.MIN_VALUE));
+        for (int id : ids) {
+            index.put(id, new int[] {Math.floorMod(id, 1000)});
+        }
+        for (int i = 0; i < ids.size(); i += 2) {
+            index.remove(ids.get(i));
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            int id = ids.get(i);
+            if (i % 2 == 0) {
+                assertEquals(LocationIndex.ABSENT, index.get(id));
+            } else {
+                assertArrayEquals(new int[] {Math.floorMod(id, 1000)}, index.holderSlots(id), "id " + id);
+            }
+        }
+        assertEquals(ids.size() / 2, index.size());
+    }
+
+    @Test
+    void readersSeeStableEntriesWhileWritersResizeAndDelete() throws Exception {
+        LocationIndex index = new LocationIndex();
+        int stable = 5_000;
+        for (int id = 0; id < stable; id++) {
+            index.put(id, new int[] {id % 500, 500 + id % 7});
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        // Yazıcı: kararlı girdilerle aynı segmentlere sürekli ekleyip siler; tablolar büyür ve
+        // backward-shift silme kararlı girdileri yerinden oynatır
+        threads.add(new Thread(() -> {
+            try {
+                for (int round = 0; round < 4; round++) {
+                    for (int id = stable; id < 400_000; id++) index.put(id, new int[] {1});
+                    for (int id = stable; id < 400_000; id++) index.remove(id);
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                done.set(true);
+            }
+        }));
+        for (int r = 0; r < 3; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        for (int id = 0; id < stable; id++) {
+                            long packed = index.get(id);
+                            assertEquals(2, index.holderCount(id, packed), "id " + id);
+                            assertEquals(id % 500, index.holderSlot(id, packed, 0));
+                            assertEquals(500 + id % 7, index.holderSlot(id, packed, 1));
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    done.set(true);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread t : threads) t.join();
+        assertNull(failure.get(), () -> String.valueOf(failure.get()));
+        assertEquals(stable, index.size());
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.family;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class LocationLogTest {
+
+    @TempDir
+    Path dir;
+
+    // Testler için bellekteki kaynak: ID'ler bucketCount bucket'a mod ile dağıtılır.
+    static final class MapSource implements LocationLog.Source {
+        final Map<Integer, int[]> entries = new ConcurrentHashMap<>();
+        final int bucketCount;
+        byte[] state = new byte[0];
+
+        MapSource(int bucketCount) {
+            this.bucketCount = bucketCount;
+        }
+
+        @Override
+        public int buckets() {
+            return bucketCount;
+        }
+
+        @Override
+        public int bucketOf(int id) {
+            return Math.floorMod(id, bucketCount);
+        }
+
+        @Override
+        public void presize(int bucket, int records) {
+        }
+
+        @Override
+        public void forEach(int bucket, LocationLog.Sink sink) {
+            new TreeMap<>(entries).forEach((id, ports) -> {
+                if (bucketOf(id) == bucket) sink.accept(id, ports);
+            });
+        }
+
+        @Override
+        public byte[] state() {
+            return state;
+        }
+    }
+
+    private LocationLog log() throws IOException {
+        return new LocationLog(dir, 60_000, 0, 0);
+    }
+
+    private MapSource reopen(LocationLog log, boolean lazy) throws IOException {
+        MapSource restored = new MapSource(4);
+        log.open(restored, restored.entries::put, restored.entries::putIfAbsent, lazy, 2);
+        return restored;
+    }
+
+    @Test
+    void appendedRecordsSurviveReopen() throws IOException {
+        LocationLog log = log();
+        reopen(log, false);
+        log.append(1, new int[] {5555, 5556});
+        log.append(2, new int[] {5555});
+        log.append(1, new int[] {5555, 5557});
+        log.close();
+
+        LocationLog reopened = log();
+        MapSource restored = reopen(reopened, false);
+        assertArrayEquals(new int[] {5555, 5557}, restored.entries.get(1));
+        assertArrayEquals(new int[] {5555}, restored.entries.get(2));
+        assertEquals(3, reopened.tailRecords());
+        reopened.close();
+    }
+
+    @Test
+    void awaitDurableFlushesWithoutTheFlusher() throws IOException {
+        LocationLog log = log(); // flusher 60 sn'de bir çalışır
+        reopen(log, false);
+        long size = Files.size(dir.resolve("locations.log"));
+        long seq = log.append(9, new int[] {5555, 5556});
+        log.awaitDurable(seq);
+        assertEquals(size + 2 + 4 + 2 + 2 * 4 + 4, Files.size(dir.resolve("locations.log")));
+        log.close();
+    }
+
+    @Test
+    void tornTailRecordIsTruncated() throws IOException {
+        LocationLog log = log();
+        reopen(log, false);
+        log.append(1, new int[] {5555});
+        log.close();
+        Path tail = dir.resolve("locations.log");
+        long valid = Files.size(tail);
+        try (RandomAccessFile file = new RandomAccessFile(tail.toFile(), "rw")) {
+            file.seek(valid);
+            file.writeShort(LocationLog.RECORD_MAGIC);
+            file.writeInt(2); // id, sonra kayıt yarıda kalır
+        }
+
+        LocationLog reopened = log();
+        MapSource restored = reopen(reopened, false);
+        assertEquals(1, restored.entries.size());
+        assertEquals(valid, Files.size(tail));
+        reopened.close();
+    }
+
+    private MapSource snapshotWith(int count) throws IOException {
+        MapSource source = new MapSource(4);
+        for (int id = 0; id < count; id++) source.entries.put(id, new int[] {5555, 5556 + id % 3});
+        source.state = new byte[] {1, 2, 3};
+        LocationLog log = log();
+        log.open(source, (id, ports) -> { }, (id, ports) -> { }, false, 2);
+        log.compact();
+        log.close();
+        return source;
+    }
+
+    @Test
+    void snapshotRecoversEveryBucketAndTheStateBlock() throws IOException {
+        MapSource original = snapshotWith(1000);
+
+        LocationLog log = log();
+        MapSource restored = reopen(log, false);
+        assertEquals(1000L, log.recovered().join());
+        assertEquals(1000, restored.entries.size());
+        for (int id = 0; id < 1000; id++) {
+            assertArrayEquals(original.entries.get(id), restored.entries.get(id));
+        }
+        assertArrayEquals(new byte[] {1, 2, 3}, log.restoredState());
+        log.close();
+    }
+
+    @Test
+    void snapshotIsReadInWindowsSmallerThanABucket() throws IOException {
+        // 20 baytlık kayıtlar 4099 baytlık pencerelere denk gelmez; sınırdaki kayıtlar ikiye bölünür
+        MapSource original = snapshotWith(20_000);
+
+        LocationLog log = new LocationLog(dir, 60_000, 0, 0, 4099);
+        MapSource restored = new MapSource(4);
+        log.open(restored, restored.entries::put, restored.entries::putIfAbsent, false, 2);
+        assertEquals(20_000L, log.recovered().join());
+        for (int id = 0; id < 20_000; id++) {
+            assertArrayEquals(original.entries.get(id), restored.entries.get(id));
+        }
+        assertArrayEquals(new byte[] {1, 2, 3}, log.restoredState());
+        log.close();
+    }
+
+    @Test
+    void corruptRecordStopsOnlyItsBucket() throws IOException {
+        snapshotWith(20_000);
+        Path snap = dir.resolve("locations.snap");
+        long bucket0;
+        try (RandomAccessFile file = new RandomAccessFile(snap.toFile(), "rw")) {
+            file.seek(16);
+            bucket0 = file.readLong();
+            file.seek(bucket0 + 20L * 3000 + 10); // bucket 0'ın 3001. kaydının portu
+            file.writeInt(9999);
+        }
+
+        LocationLog log = new LocationLog(dir, 60_000, 0, 0, 4099);
+        MapSource restored = new MapSource(4);
+        log.open(restored, restored.entries::put, restored.entries::putIfAbsent, false, 2);
+        assertEquals(5_000L * 3 + 3000, log.recovered().join());
+        log.close();
+    }
+
+    @Test
+    void tailRecordsWinOverTheSnapshot() throws IOException {
+        snapshotWith(10);
+        LocationLog log = log();
+        reopen(log, false);
+        log.append(3, new int[] {5555, 5599});
+        log.close();
+
+        LocationLog reopened = log();
+        MapSource restored = reopen(reopened, false);
+        assertArrayEquals(new int[] {5555, 5599}, restored.entries.get(3));
+        assertEquals(10, restored.entries.size());
+        reopened.close();
+    }
+
+    @Test
+    void lazyRecoveryLoadsTheRequestedBucket() throws IOException {
+        snapshotWith(1000);
+        LocationLog log = log();
+        MapSource restored = new MapSource(4);
+        log.open(restored, restored.entries::put, restored.entries::putIfAbsent, true, 1);
+        log.ensureLoaded(777);
+        assertArrayEquals(new int[] {5555, 5556 + 777 % 3}, restored.entries.get(777));
+        log.recovered().join();
+        assertEquals(1000, restored.entries.size());
+        log.close();
+    }
+
+    @Test
+    void failedRecoveryDisablesCompactionButKeepsFlushing() throws Exception {
+        snapshotWith(100);
+        LocationLog log = new LocationLog(dir, 10, 1, 0);
+        MapSource restored = new MapSource(4);
+        log.open(restored, restored.entries::put, (id, ports) -> {
+            if (id == 42) throw new IllegalStateException("bozuk kayıt");
+            restored.entries.putIfAbsent(id, ports);
+        }, true, 1);
+        assertThrows(CompletionException.class, () -> log.recovered().join());
+        assertThrows(IOException.class, log::compact);
+
+        Path tail = dir.resolve("locations.log");
+        long size = Files.size(tail);
+        log.append(500, new int[] {5555});
+        waitForGrowth(tail, size);
+
+        // İlk flush'tan sonra sıkıştırma eşiği aşıldı; flusher hâlâ çalışıyor olmalı
+        size = Files.size(tail);
+        log.append(501, new int[] {5555});
+        waitForGrowth(tail, size);
+        log.close();
+    }
+
+    private static void waitForGrowth(Path file, long size) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (Files.size(file) <= size) {
+            if (System.nanoTime() > deadline) fail(file + " büyümedi");
+            Thread.sleep(10);
+        }
+    }
+}
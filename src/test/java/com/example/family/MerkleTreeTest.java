@@ -0,0 +1,124 @@
+package com.example.family;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MerkleTreeTest {
+
+    private static final int DEPTH = 8;
+
+    @Test
+    void digestsDoNotDependOnInsertionOrder() {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < 5000; id++) ids.add(id);
+        MerkleTree ordered = new MerkleTree(DEPTH);
+        for (int id : ids) ordered.put(id, id * 31);
+
+        Collections.shuffle(ids, new Random(7));
+        MerkleTree shuffled = new MerkleTree(DEPTH);
+        for (int id : ids) shuffled.put(id, id * 31);
+
+        for (int node = 1; node < 2 << DEPTH; node++) {
+            assertEquals(ordered.digest(node), shuffled.digest(node), "node " + node);
+        }
+    }
+
+    @Test
+    void changeOnlyTouchesTheLeafToRootPath() {
+        MerkleTree a = new MerkleTree(DEPTH);
+        MerkleTree b = new MerkleTree(DEPTH);
+        for (int id = 0; id < 1000; id++) {
+            a.put(id, id);
+            b.put(id, id);
+        }
+        b.put(123, 999); // bozuk kopya
+
+        List<Integer> differing = new ArrayList<>();
+        for (int node = 1; node < 2 << DEPTH; node++) {
+            if (a.digest(node) != b.digest(node)) differing.add(node);
+        }
+        List<Integer> path = new ArrayList<>();
+        for (int node = a.leafOf(123); node >= 1; node >>>= 1) path.add(0, node);
+        assertEquals(path, differing);
+    }
+
+    @Test
+    void removeAndRewriteRestoreTheDigest() {
+        MerkleTree tree = new MerkleTree(DEPTH);
+        for (int id = 0; id < 100; id++) tree.put(id, id);
+        long root = tree.digest(1);
+
+        tree.put(100, 1);
+        tree.put(5, 6);
+        assertNotEquals(root, tree.digest(1));
+
+        tree.remove(100);
+        tree.put(5, 5);
+        assertEquals(root, tree.digest(1));
+
+        tree.remove(12345); // olmayan ID
+        assertEquals(root, tree.digest(1));
+    }
+
+    @Test
+    void emptyTreeMatchesAfterEverythingIsRemoved() {
+        MerkleTree tree = new MerkleTree(DEPTH);
+        for (int id = 0; id < 100; id++) tree.put(id, id);
+        for (int id = 0; id < 100; id++) tree.remove(id);
+        assertEquals(new MerkleTree(DEPTH).digest(1), tree.digest(1));
+    }
+
+    @Test
+    void entriesListWhatTheLeafHolds() {
+        MerkleTree tree = new MerkleTree(DEPTH);
+        for (int id = 0; id < 2000; id++) tree.put(id, -id);
+
+        int leaf = tree.leafOf(77);
+        int[][] entries = tree.entries(leaf);
+        assertEquals(entries[0].length, entries[1].length);
+        boolean found = false;
+        for (int i = 0; i < entries[0].length; i++) {
+            assertEquals(leaf, tree.leafOf(entries[0][i]));
+            assertEquals(-entries[0][i], entries[1][i]);
+            found |= entries[0][i] == 77;
+        }
+        assertTrue(found);
+
+        tree.remove(77);
+        for (int id : tree.entries(leaf)[0]) assertNotEquals(77, id);
+    }
+
+    @Test
+    void leavesCoverTheLowestLevel() {
+        MerkleTree tree = new MerkleTree(DEPTH);
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            int leaf = tree.leafOf(random.nextInt());
+            assertTrue(leaf >= 1 << DEPTH && leaf < 2 << DEPTH, "leaf " + leaf);
+            assertTrue(tree.isLeaf(leaf));
+        }
+        assertFalse(tree.isLeaf((1 << DEPTH) - 1));
+        assertEquals(1, new MerkleTree(0).leafOf(42));
+    }
+
+    @Test
+    void checksumMatchesForStringAndBytes() {
+        String content = "merhaba dünya";
+        assertEquals(MerkleTree.checksum(content),
+                MerkleTree.checksum(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8))));
+        assertNotEquals(MerkleTree.checksum("value-7"), MerkleTree.checksum("value-7x"));
+        assertArrayEquals(new int[0], new MerkleTree(DEPTH).entries(1 << DEPTH)[0]);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.family;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageCacheTest {
+
+    // Girdi ağırlığı: 64 + 2 * uzunluk; 10 karakterlik değer 84 byte
+    private static final String VALUE = "0123456789";
+
+    @Test
+    void putReplacesAndFillKeepsTheNewerValue() {
+        MessageCache cache = new MessageCache(1024);
+        cache.put(1, "yeni");
+        cache.fill(1, "eski"); // araya giren SET'ten önce okunmuş değer
+        assertEquals("yeni", cache.get(1));
+
+        cache.put(1, "daha yeni");
+        assertEquals("daha yeni", cache.get(1));
+
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverBudget() {
+        MessageCache cache = new MessageCache(3 * 84);
+        cache.put(1, VALUE);
+        cache.put(2, VALUE);
+        cache.put(3, VALUE);
+        cache.get(1); // 2 en eski olur
+        cache.put(4, VALUE);
+
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertNotNull(cache.get(4));
+        assertTrue(cache.stats().contains("evictions=1"), cache.stats());
+    }
+
+    @Test
+    void valueLargerThanTheBudgetDropsTheOldEntry() {
+        MessageCache cache = new MessageCache(100);
+        cache.put(1, "kısa");
+        cache.put(1, VALUE.repeat(10));
+        assertNull(cache.get(1)); // eski değer geçersiz kılınmalı, bayat okunmamalı
+
+        cache.put(2, "kısa");
+        cache.fill(2, VALUE.repeat(10));
+        assertEquals("kısa", cache.get(2));
+    }
+
+    @Test
+    void statsCountHitsAndMisses() {
+        MessageCache cache = new MessageCache(1024);
+        cache.put(1, VALUE);
+        cache.get(1);
+        cache.get(2);
+        assertTrue(cache.stats().contains("hits=1, misses=1"), cache.stats());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.family;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapCacheTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    void putGetInvalidate() {
+        OffHeapCache cache = new OffHeapCache(4L * MB);
+        cache.put(1, "merhaba");
+        cache.put(2, "dünya");
+        assertEquals("merhaba", cache.get(1));
+        assertEquals("dünya", cache.get(2));
+
+        cache.put(1, "güncel");
+        assertEquals("güncel", cache.get(1));
+
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void fillDoesNotOverwrite() {
+        OffHeapCache cache = new OffHeapCache(4L * MB);
+        cache.put(1, "yeni");
+        cache.fill(1, "eski");
+        assertEquals("yeni", cache.get(1));
+    }
+
+    @Test
+    void messagesLargerThanTheBiggestClassAreNotCached() {
+        OffHeapCache cache = new OffHeapCache(4L * MB);
+        cache.put(1, "x".repeat(MB + 1));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWithinAClass() {
+        // Tek slab, 1 KB'lık sınıf: 1024 parça
+        OffHeapCache cache = new OffHeapCache(MB);
+        String body = "x".repeat(1000);
+        for (int id = 0; id < 1024; id++) cache.put(id, body);
+        cache.get(0); // 0 en yeni olur
+        cache.put(5000, body);
+
+        assertNotNull(cache.get(0));
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(5000));
+    }
+
+    @Test
+    void newSizeClassTakesASlabWhenAllSlabsAreClaimed() {
+        // İki slab'ın ikisi de küçük mesajlara verilmiş; büyük mesajların sınıfında slab yok
+        OffHeapCache cache = new OffHeapCache(2L * MB);
+        String small = "s".repeat(100);
+        for (int id = 0; id < 2 * 8192; id++) cache.put(id, small);
+
+        String large = "L".repeat(1000);
+        cache.put(100_000, large);
+
+        assertEquals(large, cache.get(100_000));
+        assertTrue(cache.stats().contains("reassigned=1"), cache.stats());
+        assertNotNull(cache.get(2 * 8192 - 1)); // yalnızca boşaltılan slab'daki (en eski) girdiler gitti
+    }
+
+    @Test
+    void classUnderPressureTakesSlabsFromIdleClass() {
+        OffHeapCache cache = new OffHeapCache(2L * MB);
+        String small = "s".repeat(100);
+        for (int id = 0; id < 2 * 8192; id++) cache.put(id, small);
+
+        // Büyük mesajlar tek slab'a (1024 parça) sığmaz; bir slab dolusu çıkarmadan sonra ikinci slab da gelir
+        String large = "L".repeat(1000);
+        for (int id = 0; id < 4000; id++) cache.put(100_000 + id, large);
+
+        for (int id = 4000 - 2048; id < 4000; id++) {
+            assertEquals(large, cache.get(100_000 + id));
+        }
+        assertTrue(cache.stats().contains("slabs/class=[0, 0, 0, 0, 2,"), cache.stats());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.family;
+
+import family.NodeInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadLoadTrackerTest {
+
+    private static NodeInfo node(int port) {
+        return NodeInfo.newBuilder().setHost("127.0.0.1").setPort(port).build();
+    }
+
+    @Test
+    void slowMemberIsNotChosenFirst() {
+        ReadLoadTracker loads = new ReadLoadTracker();
+        NodeInfo fast = node(5556);
+        NodeInfo slow = node(5557);
+        loads.started(fast);
+        loads.finished(fast, 1_000_000);
+        loads.started(slow);
+        loads.finished(slow, 500_000_000);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(List.of(fast, slow), loads.order(List.of(slow, fast)));
+        }
+    }
+
+    @Test
+    void suspectedMembersGoLast() {
+        NodeInfo a = node(5556);
+        NodeInfo b = node(5557);
+        NodeInfo c = node(5558);
+        ReadLoadTracker loads = new ReadLoadTracker(Set.of(a)::contains);
+
+        for (int i = 0; i < 100; i++) {
+            List<NodeInfo> ordered = loads.order(List.of(a, b, c));
+            assertEquals(3, ordered.size());
+            assertEquals(a, ordered.get(2));
+            assertTrue(ordered.subList(0, 2).containsAll(List.of(b, c)));
+            assertTrue(loads.choose(List.of(a, b, c)) != a);
+        }
+    }
+
+    @Test
+    void onlySuspectedHoldersAreStillReadable() {
+        NodeInfo a = node(5556);
+        NodeInfo b = node(5557);
+        ReadLoadTracker loads = new ReadLoadTracker(Set.of(a, b)::contains);
+
+        List<NodeInfo> ordered = loads.order(List.of(a, b));
+        assertEquals(2, ordered.size());
+        assertTrue(ordered.containsAll(List.of(a, b)));
+    }
+
+    @Test
+    void removedMemberDoesNotKeepItsCost() {
+        ReadLoadTracker loads = new ReadLoadTracker();
+        NodeInfo fast = node(5556);
+        NodeInfo slow = node(5557);
+        loads.started(fast);
+        loads.finished(fast, 1_000_000);
+        loads.started(slow);
+        loads.started(slow);
+        loads.finished(slow, 500_000_000);
+
+        // Çıkarılan üyenin yoldaki okuması bittiğinde kayıt yeniden yaratılmaz
+        loads.remove(slow);
+        loads.finished(slow, 500_000_000);
+        assertFalse(loads.stats().contains("5557"));
+
+        // Aynı portla geri dönen üye hiç ölçülmemiş sayılır ve önce denenir
+        for (int i = 0; i < 100; i++) {
+            assertEquals(List.of(slow, fast), loads.order(List.of(fast, slow)));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.family;
+
+import family.NodeInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicationRoundTest {
+
+    private static NodeInfo node(int port) {
+        return NodeInfo.newBuilder().setHost("127.0.0.1").setPort(port).build();
+    }
+
+    @Test
+    void quorumCompletesBeforeAllTargetsAnswer() {
+        ReplicationRound round = new ReplicationRound(3, 2);
+        round.ack(node(5556));
+        round.ack(node(5557));
+
+        assertEquals(List.of(node(5556), node(5557)), round.awaitQuorum(0, TimeUnit.MILLISECONDS));
+        assertFalse(round.completion().isDone());
+
+        round.ack(node(5558));
+        assertEquals(3, round.completion().join().size());
+    }
+
+    @Test
+    void quorumGivesUpWhenItCanNoLongerBeReached() {
+        ReplicationRound round = new ReplicationRound(3, 3);
+        round.ack(node(5556));
+        round.fail();
+
+        assertEquals(List.of(node(5556)), round.awaitQuorum(0, TimeUnit.MILLISECONDS));
+        assertFalse(round.completion().isDone());
+        round.fail();
+        assertEquals(List.of(node(5556)), round.completion().join());
+    }
+
+    @Test
+    void emptyRoundIsImmediatelyComplete() {
+        ReplicationRound round = new ReplicationRound(0, 2);
+        assertTrue(round.completion().isDone());
+        assertTrue(round.awaitQuorum(0, TimeUnit.MILLISECONDS).isEmpty());
+    }
+
+    @Test
+    void requiredIsCappedAtTargetCount() {
+        ReplicationRound round = new ReplicationRound(1, 3);
+        assertEquals(1, round.required());
+        round.ack(node(5556));
+        assertEquals(List.of(node(5556)), round.awaitQuorum(0, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.family;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Path segment(int number) {
+        return dir.resolve(String.format("segment-%08d.log", number));
+    }
+
+    @Test
+    void reopenRebuildsIndexWithLatestRecord() throws IOException {
+        try (SegmentLog log = new SegmentLog(dir, 1 << 20)) {
+            log.append(1, bytes("ilk"));
+            log.append(2, bytes("iki"));
+            log.append(1, bytes("son"));
+        }
+        try (SegmentLog log = new SegmentLog(dir, 1 << 20)) {
+            assertEquals(2, log.size());
+            assertArrayEquals(bytes("son"), log.read(1));
+            assertArrayEquals(bytes("iki"), log.read(2));
+        }
+    }
+
+    @Test
+    void tornTailOfLastSegmentIsTruncated() throws IOException {
+        try (SegmentLog log = new SegmentLog(dir, 1 << 20)) {
+            log.append(1, bytes("tam"));
+        }
+        long valid = Files.size(segment(1));
+        try (RandomAccessFile file = new RandomAccessFile(segment(1).toFile(), "rw")) {
+            file.seek(valid);
+            file.write(new byte[] {0, 0, 0, 2, 0, 0, 0, 50, 1, 2}); // yarım başlık + payload
+        }
+
+        try (SegmentLog log = new SegmentLog(dir, 1 << 20)) {
+            assertEquals(1, log.size());
+            assertEquals(valid, Files.size(segment(1)));
+            log.append(2, bytes("yeni"));
+            assertArrayEquals(bytes("yeni"), log.read(2));
+        }
+    }
+
+    @Test
+    void corruptRecordInSealedSegmentIsSkippedNotTruncated() throws IOException {
+        // Her kayıt 12 + 10 byte; segment başına iki kayıt sığar
+        try (SegmentLog log = new SegmentLog(dir, 44)) {
+            log.append(1, bytes("aaaaaaaaaa"));
+            log.append(2, bytes("bbbbbbbbbb"));
+            log.append(3, bytes("cccccccccc"));
+        }
+        long sealedSize = Files.size(segment(1));
+        try (RandomAccessFile file = new RandomAccessFile(segment(1).toFile(), "rw")) {
+            file.seek(SegmentLog.HEADER_SIZE); // ilk kaydın payload'ını boz
+            file.write('X');
+        }
+
+        try (SegmentLog log = new SegmentLog(dir, 44)) {
+            assertFalse(log.contains(1));
+            assertArrayEquals(bytes("bbbbbbbbbb"), log.read(2));
+            assertArrayEquals(bytes("cccccccccc"), log.read(3));
+            assertEquals(sealedSize, Files.size(segment(1)));
+        }
+    }
+
+    @Test
+    void unreadableSealedSegmentFailsInsteadOfTruncating() throws IOException {
+        try (SegmentLog log = new SegmentLog(dir, 44)) {
+            log.append(1, bytes("aaaaaaaaaa"));
+            log.append(2, bytes("bbbbbbbbbb"));
+            log.append(3, bytes("cccccccccc"));
+        }
+        long sealedSize = Files.size(segment(1));
+        try (RandomAccessFile file = new RandomAccessFile(segment(1).toFile(), "rw")) {
+            file.seek(4); // ilk kaydın uzunluk alanı
+            file.writeInt(1 << 20);
+        }
+
+        assertThrows(IOException.class, () -> new SegmentLog(dir, 44));
+        assertEquals(sealedSize, Files.size(segment(1)));
+    }
+
+    @Test
+    void durableAppendRollsSegmentsAndIsReadable() throws IOException {
+        try (SegmentLog log = new SegmentLog(dir, 64)) {
+            log.appendDurable(List.of(
+                    new SegmentLog.PendingRecord(1, bytes("x".repeat(30))),
+                    new SegmentLog.PendingRecord(2, bytes("y".repeat(30))),
+                    new SegmentLog.PendingRecord(3, bytes("z".repeat(30)))));
+        }
+        assertTrue(Files.exists(segment(3)));
+        try (SegmentLog log = new SegmentLog(dir, 64)) {
+            assertArrayEquals(bytes("y".repeat(30)), log.read(2));
+            assertArrayEquals(bytes("z".repeat(30)), log.read(3));
+        }
+    }
+
+    @Test
+    void mappedReadsCoverTheGrowingActiveTail() throws IOException {
+        try (SegmentLog log = new SegmentLog(dir, 1 << 20, 2)) {
+            log.append(1, bytes("ilk"));
+            assertEquals("ilk", text(log.readMapped(1))); // aktif segment ilk kez map'lenir
+
+            // Map'in arkasına yazılanlar yeniden map'lenmeden konumlu read ile okunur
+            for (int id = 2; id <= 100; id++) {
+                log.append(id, bytes("mesaj-" + id));
+                assertEquals("mesaj-" + id, text(log.readMapped(id)));
+            }
+            assertEquals("ilk", text(log.readMapped(1)));
+        }
+    }
+
+    @Test
+    void mappedReadsOfSealedSegmentSeeTheWholeFile() throws IOException {
+        try (SegmentLog log = new SegmentLog(dir, 44, 4)) {
+            log.append(1, bytes("aaaaaaaaaa"));
+            assertEquals("aaaaaaaaaa", text(log.readMapped(1)));
+            log.append(2, bytes("bbbbbbbbbb"));
+            log.append(3, bytes("cccccccccc")); // segment 1 kapanır
+            assertEquals("bbbbbbbbbb", text(log.readMapped(2)));
+            assertEquals("cccccccccc", text(log.readMapped(3)));
+            assertEquals(44, Files.size(segment(1)));
+        }
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] out = new byte[buffer.remaining()];
+        buffer.get(out);
+        return new String(out, StandardCharsets.UTF_8);
+    }
+}